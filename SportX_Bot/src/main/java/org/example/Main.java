@@ -1,13 +1,61 @@
 package org.example;
 
 import org.example.bot.TelegramBot;
+import org.example.bot.WebhookServer;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Logger;
+
 public class Main{
-    public static void main(String[] args) throws TelegramApiException {
-        TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
-        telegramBotsApi.registerBot(new TelegramBot());
+
+    private static final Logger logger = Logger.getLogger(Main.class.getName());
+
+    // bot.mode=polling (по умолчанию) или webhook. В обоих режимах на один бот запускается ровно один экземпляр:
+    // состояние диалога (UserStateStore, ожидающие пароли), кэши сессий и прогресса и порядок обновлений
+    // внутри чата хранятся в памяти процесса, а Telegram не закрепляет чат за одним экземпляром
+    public static void main(String[] args) throws TelegramApiException, IOException {
+        Properties properties = loadConfig();
+        TelegramBot bot = new TelegramBot();
+        if ("webhook".equalsIgnoreCase(properties.getProperty("bot.mode", "polling"))) {
+            startWebhook(bot, properties);
+        } else {
+            TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
+            telegramBotsApi.registerBot(bot);
+        }
+    }
+
+    private static void startWebhook(TelegramBot bot, Properties properties) throws TelegramApiException, IOException {
+        WebhookServer server = WebhookServer.fromProperties(properties, bot::offerUpdate);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            bot.onClosing();
+        }, "webhook-shutdown"));
+
+        // без webhook.publicUrl адрес считается уже зарегистрированным, например вручную или прошлым запуском
+        String publicUrl = properties.getProperty("webhook.publicUrl");
+        if (publicUrl != null && !publicUrl.isBlank()) {
+            bot.execute(SetWebhook.builder()
+                    .url(publicUrl)
+                    .secretToken(properties.getProperty("webhook.secretToken"))
+                    .build());
+        }
+    }
+
+    private static Properties loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream("config.properties")) {
+            properties.load(input);
+        } catch (IOException e) {
+            logger.warning("Файл config.properties не загружен, используется long polling: " + e.getMessage());
+        }
+        return properties;
     }
-}
\ No newline at end of file
+}
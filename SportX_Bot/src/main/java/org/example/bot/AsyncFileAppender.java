@@ -0,0 +1,347 @@
+package org.example.bot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+// Асинхронная запись строк в файл: вызывающий поток только кладет строку в кольцевой буфер,
+// отдельный поток пишет накопившиеся строки пачкой в один постоянно открытый FileChannel.
+// Файл переименовывается при превышении размера или смене даты; сжатие в gzip идет в отдельном потоке,
+// чтобы писатель не стоял, пока сжимается большой файл.
+public class AsyncFileAppender implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        DROP,  // при заполненном буфере строка отбрасывается и учитывается в счетчике
+        BLOCK  // вызывающий поток ждет, пока писатель освободит место
+    }
+
+    private static final DateTimeFormatter ROLL_SUFFIX = DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss");
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final Path path;
+    private final OverflowPolicy overflowPolicy;
+    private final long flushIntervalMillis;
+    private final long maxFileBytes;
+    private final boolean rotateDaily;
+
+    private final String[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private int head;
+    private int size;
+    // номера строк: сколько принято в буфер и сколько уже записано в файл
+    private long accepted;
+    private long written;
+    private boolean flushRequested;
+    private volatile boolean closed;
+
+    private final Thread thread;
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-compressor");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private FileChannel channel;
+    private LocalDate openedOn;
+    private ByteBuffer batch = ByteBuffer.allocate(64 * 1024);
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong rotations = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+
+    public AsyncFileAppender(Path path, int capacity, OverflowPolicy overflowPolicy, long flushIntervalMillis,
+                             long maxFileBytes, boolean rotateDaily) {
+        if (capacity <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Размер буфера и интервал сброса должны быть положительными");
+        }
+        this.path = path;
+        this.ring = new String[capacity];
+        this.overflowPolicy = overflowPolicy;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxFileBytes = maxFileBytes;
+        this.rotateDaily = rotateDaily;
+        this.thread = new Thread(this::run, "log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Принимает строку без перевода строки; false, если строка отброшена
+    public boolean append(String line) {
+        lock.lock();
+        try {
+            while (size == ring.length && !closed) {
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            ring[(head + size) % ring.length] = line;
+            size++;
+            accepted++;
+            if (size == 1) {
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ждет, пока все принятые к этому моменту строки окажутся в файле
+    public void flush() {
+        lock.lock();
+        try {
+            long target = accepted;
+            flushRequested = true;
+            notEmpty.signal();
+            long remaining = TimeUnit.SECONDS.toNanos(5);
+            while (written < target && !closed && remaining > 0) {
+                remaining = flushed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getAverageFlushMicros() {
+        long count = flushes.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalFlushNanos.get() / count);
+    }
+
+    public long getMaxFlushMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxFlushNanos.get());
+    }
+
+    public long getRotationCount() {
+        return rotations.get();
+    }
+
+    public long getWriteErrorCount() {
+        return writeErrors.get();
+    }
+
+    public int getBufferedCount() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getStats() {
+        return String.format("AsyncFileAppender[buffered=%d/%d, dropped=%d, flushes=%d, avgFlush=%dus, maxFlush=%dus, rotations=%d, errors=%d]",
+                getBufferedCount(), ring.length, getDroppedCount(), getFlushCount(), getAverageFlushMicros(),
+                getMaxFlushMicros(), getRotationCount(), getWriteErrorCount());
+    }
+
+    // Дописывает все, что осталось в буфере, закрывает файл и дожидается сжатия уже переименованных файлов
+    @Override
+    public void close() {
+        flush();
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+            compressor.shutdown();
+            compressor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        String[] drained = new String[ring.length];
+        while (true) {
+            int count;
+            lock.lock();
+            try {
+                if (size == 0 && !closed && !flushRequested) {
+                    notEmpty.awaitNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+                }
+                if (size == 0 && closed) {
+                    break;
+                }
+                flushRequested = false;
+                count = size;
+                for (int i = 0; i < count; i++) {
+                    drained[i] = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                }
+                size = 0;
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            if (count > 0 && !writeBatch(drained, count)) {
+                // строки из буфера уже изъяты: при ошибке записи они потеряны
+                dropped.addAndGet(count);
+            }
+
+            lock.lock();
+            try {
+                written += count;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        closeChannel();
+    }
+
+    // false, если пачка не записана
+    private boolean writeBatch(String[] lines, int count) {
+        long startedAt = System.nanoTime();
+        boolean success = true;
+        try {
+            rotateIfNeeded();
+            batch.clear();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = lines[i].getBytes(StandardCharsets.UTF_8);
+                lines[i] = null;
+                ensureCapacity(bytes.length + LINE_SEPARATOR.length);
+                batch.put(bytes).put(LINE_SEPARATOR);
+            }
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } catch (IOException e) {
+            success = false;
+            writeErrors.incrementAndGet();
+            closeChannel();
+            System.err.println("Ошибка при записи в лог файл: " + e.getMessage());
+            for (int i = 0; i < count; i++) {
+                lines[i] = null;
+            }
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        flushes.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        return success;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (batch.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + needed));
+            batch.flip();
+            larger.put(batch);
+            batch = larger;
+        }
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        if (channel == null) {
+            openChannel();
+        }
+        // размер берем у файла: его могут обрезать снаружи
+        boolean tooLarge = maxFileBytes > 0 && channel.size() >= maxFileBytes;
+        boolean newDay = rotateDaily && !LocalDate.now().equals(openedOn);
+        if (!tooLarge && !newDay) {
+            return;
+        }
+        closeChannel();
+        if (Files.exists(path) && Files.size(path) > 0) {
+            Path rolled = rolledPath();
+            Files.move(path, rolled);
+            compressor.execute(() -> compress(rolled));
+            rotations.incrementAndGet();
+        }
+        openChannel();
+    }
+
+    // Имя не совпадает с файлами, которые, возможно, еще сжимаются: несколько ротаций могут прийтись на одну секунду
+    private Path rolledPath() {
+        String name = path.getFileName() + "." + LocalDateTime.now().format(ROLL_SUFFIX);
+        Path rolled = path.resolveSibling(name);
+        for (int i = 1; Files.exists(rolled) || Files.exists(rolled.resolveSibling(rolled.getFileName() + ".gz")); i++) {
+            rolled = path.resolveSibling(name + "-" + i);
+        }
+        return rolled;
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        openedOn = LocalDate.now();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Ошибка при закрытии лог файла: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private static void compress(Path rolled) {
+        Path compressed = rolled.resolveSibling(rolled.getFileName() + ".gz");
+        try (InputStream input = Files.newInputStream(rolled);
+             OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            input.transferTo(output);
+        } catch (IOException e) {
+            System.err.println("Ошибка при сжатии лог файла: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.delete(rolled);
+        } catch (IOException e) {
+            System.err.println("Ошибка при удалении лог файла: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.bot;
+
+import java.util.Set;
+
+// Условия доступа к команде. Набор условий команды хранится как EnumSet (битовая маска),
+// пустой набор - публичная команда, для которой статус авторизации вообще не запрашивается.
+public enum AuthRequirement {
+    SESSION,
+    PROFILE;
+
+    public boolean isSatisfiedBy(AuthStatus status) {
+        switch (this) {
+            case SESSION:
+                return status.isSessionActive();
+            case PROFILE:
+                return status.isProfileExists();
+            default:
+                return false;
+        }
+    }
+
+    public static boolean allSatisfied(Set<AuthRequirement> requirements, AuthStatus status) {
+        for (AuthRequirement requirement : requirements) {
+            if (!requirement.isSatisfiedBy(status)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
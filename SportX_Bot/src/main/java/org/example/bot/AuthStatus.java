@@ -0,0 +1,27 @@
+package org.example.bot;
+
+// Результат проверки авторизации чата: активная сессия и наличие профиля, полученные одним запросом
+public class AuthStatus {
+
+    public static final AuthStatus ANONYMOUS = new AuthStatus(false, false);
+
+    private final boolean sessionActive;
+    private final boolean profileExists;
+
+    public AuthStatus(boolean sessionActive, boolean profileExists) {
+        this.sessionActive = sessionActive;
+        this.profileExists = profileExists;
+    }
+
+    public boolean isSessionActive() {
+        return sessionActive;
+    }
+
+    public boolean isProfileExists() {
+        return profileExists;
+    }
+
+    public boolean isAuthenticated() {
+        return sessionActive && profileExists;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.bot;
+
+// Маршрутизация callback-данных инлайн-кнопок: обработчики регистрируются один раз при запуске,
+// обработчику с идентификатором число передается уже разобранным.
+public class CallbackRouter {
+
+    public interface Handler {
+        void handle(long chatId);
+    }
+
+    public interface IdHandler {
+        void handle(long chatId, int id);
+    }
+
+    private final PrefixTrie<Route> routes = new PrefixTrie<>();
+
+    public CallbackRouter on(String data, Handler handler) {
+        routes.put(data, new Route(handler, null));
+        return this;
+    }
+
+    // prefix может быть пустым - тогда маршрут принимает данные, состоящие только из числа
+    public CallbackRouter onId(String prefix, IdHandler handler) {
+        routes.putWithId(prefix, new Route(null, handler));
+        return this;
+    }
+
+    // false, если для данных нет маршрута
+    public boolean route(long chatId, String data) {
+        PrefixTrie.Match<Route> match = routes.route(data);
+        if (match == null) {
+            return false;
+        }
+        Route route = match.getValue();
+        if (route.handler != null) {
+            route.handler.handle(chatId);
+        } else {
+            route.idHandler.handle(chatId, match.getId());
+        }
+        return true;
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    private static final class Route {
+        private final Handler handler;
+        private final IdHandler idHandler;
+
+        private Route(Handler handler, IdHandler idHandler) {
+            this.handler = handler;
+            this.idHandler = idHandler;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package org.example.bot;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Ограниченный пул JDBC-соединений. Выдает соединения в аренду, close() возвращает их обратно в пул.
+public class ConnectionPool implements AutoCloseable {
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long maxLifetimeMillis;
+    private final long leakDetectionThresholdMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private int totalConnections;
+    private int waiters;
+    private boolean closed;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireTimeNanos = new AtomicLong();
+    private final AtomicLong maxAcquireTimeNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String username, String password, int maxSize, long acquireTimeoutMillis,
+                          long validationIntervalMillis, long maxLifetimeMillis, long leakDetectionThresholdMillis) {
+        this(() -> DriverManager.getConnection(url, username, password), maxSize, acquireTimeoutMillis,
+                validationIntervalMillis, maxLifetimeMillis, leakDetectionThresholdMillis);
+    }
+
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long acquireTimeoutMillis,
+                          long validationIntervalMillis, long maxLifetimeMillis, long leakDetectionThresholdMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер пула должен быть положительным: " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long shortest = Long.MAX_VALUE;
+        if (leakDetectionThresholdMillis > 0) {
+            shortest = leakDetectionThresholdMillis;
+        }
+        if (maxLifetimeMillis > 0) {
+            shortest = Math.min(shortest, maxLifetimeMillis);
+        }
+        if (shortest != Long.MAX_VALUE) {
+            long period = Math.max(1000, shortest / 2);
+            housekeeper.scheduleWithFixedDelay(this::houseKeeping, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Берет соединение из пула. Возвращенное соединение нужно закрыть, чтобы вернуть его в пул.
+    public Connection acquire() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Пул соединений закрыт");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLTimeoutException("Не удалось получить соединение из пула за " + acquireTimeoutMillis + " мс");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Ожидание соединения прервано", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = new PooledConnection(factory.create());
+                } catch (SQLException | RuntimeException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                closePhysical(candidate);
+                continue;
+            }
+
+            candidate.lease();
+            leased.add(candidate);
+            recordAcquire(System.nanoTime() - start);
+            return candidate.proxy;
+        }
+    }
+
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            long count = acquireCount.get();
+            return new PoolStats(maxSize, totalConnections, leased.size(), idle.size(), waiters, count,
+                    count == 0 ? 0 : acquireTimeNanos.get() / count, maxAcquireTimeNanos.get(),
+                    timeoutCount.get(), leakCount.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        toClose.forEach(this::closePhysical);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis) {
+            return false;
+        }
+        if (now - pooled.lastReturnedAt < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        leased.remove(pooled);
+        boolean reusable = pooled.resetAfterUse();
+        if (reusable && maxLifetimeMillis > 0 && System.currentTimeMillis() - pooled.createdAt >= maxLifetimeMillis) {
+            reusable = false;
+        }
+
+        lock.lock();
+        try {
+            if (reusable && !closed) {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        closePhysical(pooled);
+    }
+
+    private void closePhysical(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Ошибка при закрытии соединения", e);
+        }
+        discardSlot();
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        acquireCount.incrementAndGet();
+        acquireTimeNanos.addAndGet(nanos);
+        maxAcquireTimeNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void houseKeeping() {
+        long now = System.currentTimeMillis();
+
+        if (leakDetectionThresholdMillis > 0) {
+            for (PooledConnection pooled : leased) {
+                if (!pooled.leakReported && now - pooled.leasedAt >= leakDetectionThresholdMillis) {
+                    pooled.leakReported = true;
+                    leakCount.incrementAndGet();
+                    logger.log(Level.WARNING, "Возможная утечка соединения: занято более " + leakDetectionThresholdMillis + " мс", pooled.leaseTrace);
+                }
+            }
+        }
+
+        if (maxLifetimeMillis > 0) {
+            List<PooledConnection> expired = new ArrayList<>();
+            lock.lock();
+            try {
+                idle.removeIf(pooled -> {
+                    if (now - pooled.createdAt >= maxLifetimeMillis) {
+                        expired.add(pooled);
+                        return true;
+                    }
+                    return false;
+                });
+            } finally {
+                lock.unlock();
+            }
+            expired.forEach(this::closePhysical);
+        }
+    }
+
+    // Обертка над физическим соединением: перехватывает close() и отслеживает открытые statement'ы
+    private final class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private final long createdAt = System.currentTimeMillis();
+        private final List<Statement> statements = new ArrayList<>();
+        private volatile long leasedAt;
+        private volatile long lastReturnedAt = createdAt;
+        private volatile boolean leakReported;
+        private volatile Throwable leaseTrace;
+        private boolean inUse;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        private void lease() {
+            inUse = true;
+            leasedAt = System.currentTimeMillis();
+            leakReported = false;
+            leaseTrace = leakDetectionThresholdMillis > 0 ? new Throwable("Соединение взято здесь") : null;
+        }
+
+        // Закрывает оставшиеся statement'ы и откатывает незавершенную транзакцию; false, если соединение испорчено
+        private boolean resetAfterUse() {
+            synchronized (this) {
+                for (Statement statement : statements) {
+                    try {
+                        statement.close();
+                    } catch (SQLException ignored) {
+                        // statement уже мог быть закрыт вызывающим кодом
+                    }
+                }
+                statements.clear();
+            }
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            synchronized (this) {
+                switch (name) {
+                    case "close":
+                        if (inUse) {
+                            inUse = false;
+                            release(this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return !inUse || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + physical + "]";
+                    default:
+                        if (!inUse) {
+                            throw new SQLException("Соединение уже возвращено в пул");
+                        }
+                }
+            }
+
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                synchronized (this) {
+                    statements.add((Statement) result);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.bot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Неизменяемый снимок справочника: программы -> тренировки -> упражнения.
+// Заменяется целиком при обнаружении новой версии данных.
+public class CourseCatalog {
+
+    private final long version;
+    private final String fingerprint;
+    private final List<Course> courses;
+    private final Map<Integer, List<Workout>> workoutsByCourse;
+    private final Map<Integer, List<Exercise>> exercisesByWorkout;
+    // Порядковый номер тренировки внутри ее программы - индекс в битовой маске выполненных тренировок
+    private final Map<Integer, Integer> workoutOrdinals = new HashMap<>();
+
+    public CourseCatalog(long version, String fingerprint, List<Course> courses,
+                         Map<Integer, List<Workout>> workoutsByCourse, Map<Integer, List<Exercise>> exercisesByWorkout) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.courses = List.copyOf(courses);
+        this.workoutsByCourse = freeze(workoutsByCourse);
+        this.exercisesByWorkout = freeze(exercisesByWorkout);
+        for (List<Workout> workouts : this.workoutsByCourse.values()) {
+            for (int i = 0; i < workouts.size(); i++) {
+                workoutOrdinals.put(workouts.get(i).getId(), i);
+            }
+        }
+    }
+
+    private static <T> Map<Integer, List<T>> freeze(Map<Integer, List<T>> source) {
+        Map<Integer, List<T>> copy = new LinkedHashMap<>();
+        source.forEach((key, value) -> copy.put(key, List.copyOf(value)));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    // Объекты Workout общие для всех пользователей - их нельзя изменять, см. CourseManager.getWorkouts
+    public List<Workout> getWorkouts(int courseId) {
+        return workoutsByCourse.getOrDefault(courseId, List.of());
+    }
+
+    public int getWorkoutOrdinal(int workoutId) {
+        return workoutOrdinals.getOrDefault(workoutId, -1);
+    }
+
+    public List<Exercise> getExercises(int workoutId) {
+        return exercisesByWorkout.getOrDefault(workoutId, List.of());
+    }
+}
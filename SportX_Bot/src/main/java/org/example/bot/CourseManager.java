@@ -1,246 +1,333 @@
 package org.example.bot;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class CourseManager {
 
+    private static final Logger logger = Logger.getLogger(CourseManager.class.getName());
+
+    private static final String CATALOG_QUERY = "SELECT c.course_id, c.course_name, c.course_description, " +
+            "w.workout_id, w.workout_name, w.workout_description, " +
+            "e.exercise_id, e.exercise_name, e.repetitions, e.sets " +
+            "FROM courses c " +
+            "LEFT JOIN workouts w ON w.course_id = c.course_id " +
+            "LEFT JOIN exercises e ON e.workout_id = w.workout_id " +
+            "ORDER BY c.course_id, w.workout_id, e.exercise_id";
+
+    // Контрольные суммы справочных таблиц - меняются при любом изменении данных
+    private static final String CATALOG_FINGERPRINT_QUERY = "CHECKSUM TABLE courses, workouts, exercises";
+
     private final DatabaseConnection dbConnection;
+    // Снимок справочника вместе с готовыми текстами и клавиатурами - подменяются одной операцией
+    private final AtomicReference<RenderedCatalog> catalog = new AtomicReference<>();
+    private ScheduledExecutorService catalogPoller;
+
+    // Выбранная программа и выполненные тренировки пользователя в виде битовой маски по порядковому номеру тренировки
+    private static final int MAX_CACHED_PROGRESS = 10_000;
+    private final Map<Long, WorkoutProgress> progressCache = Collections.synchronizedMap(
+            new LinkedHashMap<Long, WorkoutProgress>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, WorkoutProgress> eldest) {
+                    return size() > MAX_CACHED_PROGRESS;
+                }
+            });
 
     public CourseManager(DatabaseConnection dbConnection) {
         this.dbConnection = dbConnection;
     }
 
-    public String getCoursesAsString() throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_id, course_name, course_description FROM courses";
-        ResultSet resultSet = dbConnection.select(query);
-        StringBuilder courses = new StringBuilder();
-
-        while (resultSet.next()) {
-            courses.append(String.format("<b>%s</b>\n<b>Описание:</b> <i>%s</i>\n\n",
-                    resultSet.getString("course_name"),
-                    resultSet.getString("course_description")));
-        }
+    // Снимок справочника; при первом обращении загружается из БД
+    public CourseCatalog getCatalog() throws SQLException {
+        return getRenderedCatalog().getCatalog();
+    }
 
-        dbConnection.disconnect();
-        return courses.toString();
+    public RenderedCatalog getRenderedCatalog() throws SQLException {
+        RenderedCatalog current = catalog.get();
+        return current != null ? current : loadInitialCatalog();
     }
 
-    public List<Course> getCourses() throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_id, course_name, course_description FROM courses";
-        ResultSet resultSet = dbConnection.select(query);
-        List<Course> courses = new ArrayList<>();
-
-        while (resultSet.next()) {
-            courses.add(new Course(
-                    resultSet.getInt("course_id"),
-                    resultSet.getString("course_name"),
-                    resultSet.getString("course_description")
-            ));
+    private synchronized RenderedCatalog loadInitialCatalog() throws SQLException {
+        RenderedCatalog current = catalog.get();
+        if (current == null) {
+            reloadCatalog();
+            current = catalog.get();
         }
-
-        dbConnection.disconnect();
-        return courses;
+        return current;
     }
 
-    public String getWorkoutsAsString(long userId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_id FROM user_profiles WHERE user_id = ?";
-        ResultSet resultSet = dbConnection.select(query, userId);
-        int courseId = 0;
+    // Загружает справочник одним запросом и атомарно подменяет текущий снимок
+    public synchronized CourseCatalog reloadCatalog() throws SQLException {
+        CourseCatalog loaded = dbConnection.withConnection(connection -> {
+            String fingerprint = loadCatalogFingerprint();
+            Map<Integer, Course> courses = new LinkedHashMap<>();
+            Map<Integer, List<Workout>> workouts = new LinkedHashMap<>();
+            Map<Integer, List<Exercise>> exercises = new LinkedHashMap<>();
+
+            dbConnection.queryEach(CATALOG_QUERY, resultSet -> {
+                int courseId = resultSet.getInt("course_id");
+                if (!courses.containsKey(courseId)) {
+                    courses.put(courseId, new Course(courseId, resultSet.getString("course_name"), resultSet.getString("course_description")));
+                    workouts.put(courseId, new ArrayList<>());
+                }
+
+                int workoutId = resultSet.getInt("workout_id");
+                if (resultSet.wasNull()) {
+                    return;
+                }
+                if (!exercises.containsKey(workoutId)) {
+                    exercises.put(workoutId, new ArrayList<>());
+                    workouts.get(courseId).add(new Workout(workoutId, resultSet.getString("workout_name"), resultSet.getString("workout_description")));
+                }
+
+                int exerciseId = resultSet.getInt("exercise_id");
+                if (!resultSet.wasNull()) {
+                    exercises.get(workoutId).add(new Exercise(exerciseId, resultSet.getString("exercise_name"),
+                            resultSet.getInt("repetitions"), resultSet.getInt("sets")));
+                }
+            });
+
+            RenderedCatalog previous = catalog.get();
+            return new CourseCatalog(previous == null ? 1 : previous.getCatalog().getVersion() + 1, fingerprint,
+                    new ArrayList<>(courses.values()), workouts, exercises);
+        });
+
+        catalog.set(new RenderedCatalog(loaded));
+        logger.info("Справочник программ загружен, версия " + loaded.getVersion() + ": " + loaded.getCourses().size() + " программ");
+        return loaded;
+    }
 
-        if (resultSet.next()) {
-            courseId = resultSet.getInt("course_id");
+    // Периодически сверяет контрольную сумму справочных таблиц и перезагружает снимок при изменениях
+    public synchronized void startCatalogPolling(long periodMillis) {
+        if (catalogPoller != null || periodMillis <= 0) {
+            return;
         }
+        catalogPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        catalogPoller.scheduleWithFixedDelay(this::checkCatalogVersion, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
 
-        query = "SELECT workout_id, workout_name, workout_description FROM workouts WHERE course_id = ?";
-        resultSet = dbConnection.select(query, courseId);
-        StringBuilder workouts = new StringBuilder();
+    public synchronized void stopCatalogPolling() {
+        if (catalogPoller != null) {
+            catalogPoller.shutdownNow();
+            catalogPoller = null;
+        }
+    }
 
-        while (resultSet.next()) {
-            workouts.append(String.format("<b>%s</b>\n<b>Описание:</b> <i>%s</i>\n\n",
-                    resultSet.getString("workout_name"),
-                    resultSet.getString("workout_description")));
+    private void checkCatalogVersion() {
+        try {
+            RenderedCatalog current = catalog.get();
+            if (current != null && !current.getCatalog().getFingerprint().equals(loadCatalogFingerprint())) {
+                reloadCatalog();
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Не удалось проверить версию справочника программ", e);
         }
+    }
 
-        dbConnection.disconnect();
-        return workouts.toString();
+    private String loadCatalogFingerprint() throws SQLException {
+        return String.join(",", dbConnection.query(CATALOG_FINGERPRINT_QUERY, resultSet -> resultSet.getString(2)));
     }
 
-    public List<Workout> getWorkouts(long userId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_id FROM user_profiles WHERE user_id = ?";
-        ResultSet resultSet = dbConnection.select(query, userId);
-        int courseId = 0;
+    public String getCoursesAsString() throws SQLException {
+        return getRenderedCatalog().getCoursesHtml();
+    }
 
-        if (resultSet.next()) {
-            courseId = resultSet.getInt("course_id");
-        }
+    public List<Course> getCourses() throws SQLException {
+        return getCatalog().getCourses();
+    }
 
-        query = "SELECT workout_id, workout_name, workout_description FROM workouts WHERE course_id = ?";
-        resultSet = dbConnection.select(query, courseId);
-        List<Workout> workouts = new ArrayList<>();
+    public String getWorkoutsAsString(long userId) throws SQLException {
+        return getRenderedCatalog().getWorkoutsHtml(getCourseIdForUser(userId));
+    }
 
-        while (resultSet.next()) {
-            workouts.add(new Workout(
-                    resultSet.getInt("workout_id"),
-                    resultSet.getString("workout_name"),
-                    resultSet.getString("workout_description")
-            ));
-        }
+    public InlineKeyboardMarkup getCourseSelectionKeyboard() throws SQLException {
+        return getRenderedCatalog().getCourseSelectionKeyboard();
+    }
 
-        dbConnection.disconnect();
-        return workouts;
+    public InlineKeyboardMarkup getCompleteWorkoutKeyboard(int workoutId) throws SQLException {
+        return getRenderedCatalog().getCompleteWorkoutKeyboard(workoutId);
     }
 
-    public String getExercisesAsString(int workoutId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT exercise_id, exercise_name, repetitions, sets FROM exercises WHERE workout_id = ?";
-        ResultSet resultSet = dbConnection.select(query, workoutId);
-        StringBuilder exercises = new StringBuilder();
-
-        while (resultSet.next()) {
-            exercises.append(String.format("<b>%s</b>\n<b>Повторения:</b> %d, <b>Подходы:</b> %d\n\n",
-                    resultSet.getString("exercise_name"),
-                    resultSet.getInt("repetitions"),
-                    resultSet.getInt("sets")));
+    // Возвращает копии тренировок: у каждого пользователя свой признак выполнения
+    public List<Workout> getWorkouts(long userId) throws SQLException {
+        List<Workout> workouts = new ArrayList<>();
+        for (Workout workout : getCatalog().getWorkouts(getCourseIdForUser(userId))) {
+            workouts.add(new Workout(workout.getId(), workout.getName(), workout.getDescription()));
         }
+        return workouts;
+    }
 
-        dbConnection.disconnect();
-        return exercises.toString();
+    public String getExercisesAsString(int workoutId) throws SQLException {
+        return getRenderedCatalog().getExercisesHtml(workoutId);
     }
 
     public void markWorkoutAsCompleted(long userId, int workoutId) throws SQLException {
-        dbConnection.connect();
         String query = "INSERT INTO completed_workouts (user_id, workout_id, completed) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE completed = ?";
         dbConnection.update(query, userId, workoutId, true, true);
-        dbConnection.disconnect();
+        CourseCatalog current = getCatalog();
+        progressCache.computeIfPresent(userId, (id, progress) -> progress.withCompleted(current, workoutId));
     }
 
     public boolean isWorkoutCompleted(long userId, int workoutId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT completed FROM completed_workouts WHERE user_id = ? AND workout_id = ?";
-        ResultSet resultSet = dbConnection.select(query, userId, workoutId);
-        boolean completed = false;
-        if (resultSet.next()) {
-            completed = resultSet.getBoolean("completed");
+        CourseCatalog current = getCatalog();
+        WorkoutProgress progress = getProgress(userId, current);
+        int ordinal = ordinalInCourse(current, progress.courseId, workoutId);
+        if (ordinal >= 0) {
+            return progress.completed.get(ordinal);
         }
-        dbConnection.disconnect();
-        return completed;
+        String query = "SELECT completed FROM completed_workouts WHERE user_id = ? AND workout_id = ?";
+        return dbConnection.queryFirst(query, resultSet -> resultSet.getBoolean("completed"), false, userId, workoutId);
     }
 
+    // Список тренировок выбранной программы с отметками выполнения: один запрос или ни одного, если прогресс в кэше
     public List<Workout> getWorkoutsWithCompletionStatus(long userId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_id FROM user_profiles WHERE user_id = ?";
-        ResultSet resultSet = dbConnection.select(query, userId);
-        int courseId = 0;
-
-        if (resultSet.next()) {
-            courseId = resultSet.getInt("course_id");
-        }
-
-        query = "SELECT workout_id, workout_name, workout_description FROM workouts WHERE course_id = ?";
-        resultSet = dbConnection.select(query, courseId);
+        CourseCatalog current = getCatalog();
+        WorkoutProgress progress = getProgress(userId, current);
         List<Workout> workouts = new ArrayList<>();
-
-        while (resultSet.next()) {
-            Workout workout = new Workout(
-                    resultSet.getInt("workout_id"),
-                    resultSet.getString("workout_name"),
-                    resultSet.getString("workout_description")
-            );
-            workout.setCompleted(isWorkoutCompleted(userId, workout.getId()));
-            workouts.add(workout);
+        List<Workout> courseWorkouts = current.getWorkouts(progress.courseId);
+        for (int i = 0; i < courseWorkouts.size(); i++) {
+            Workout workout = courseWorkouts.get(i);
+            Workout copy = new Workout(workout.getId(), workout.getName(), workout.getDescription());
+            copy.setCompleted(progress.completed.get(i));
+            workouts.add(copy);
         }
-
-        dbConnection.disconnect();
         return workouts;
     }
 
     public void resetCompletedWorkouts(long userId) throws SQLException {
-        dbConnection.connect();
         String query = "DELETE FROM completed_workouts WHERE user_id = ?";
         dbConnection.delete(query, userId);
-        dbConnection.disconnect();
+        progressCache.computeIfPresent(userId, (id, progress) -> progress.withoutCompleted());
     }
 
-    public List<String> getCoursesList() throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_name FROM courses";
-        ResultSet resultSet = dbConnection.select(query);
-        List<String> courses = new ArrayList<>();
+    // Сбрасывает кэш прогресса пользователя, например после удаления профиля
+    public void invalidateProgress(long userId) {
+        progressCache.remove(userId);
+    }
 
-        while (resultSet.next()) {
-            courses.add(resultSet.getString("course_name"));
+    private WorkoutProgress getProgress(long userId, CourseCatalog current) throws SQLException {
+        WorkoutProgress progress = progressCache.get(userId);
+        if (progress != null && progress.catalogVersion == current.getVersion()) {
+            return progress;
         }
+        progress = loadProgress(userId, current);
+        progressCache.put(userId, progress);
+        return progress;
+    }
+
+    private WorkoutProgress loadProgress(long userId, CourseCatalog current) throws SQLException {
+        String query = "SELECT up.course_id, cw.workout_id " +
+                "FROM user_profiles up " +
+                "LEFT JOIN completed_workouts cw ON cw.user_id = up.user_id AND cw.completed = TRUE " +
+                "WHERE up.user_id = ?";
+        int[] courseId = {0};
+        BitSet completed = new BitSet();
+        dbConnection.queryEach(query, resultSet -> {
+            courseId[0] = resultSet.getInt("course_id");
+            int workoutId = resultSet.getInt("workout_id");
+            if (!resultSet.wasNull()) {
+                int ordinal = ordinalInCourse(current, courseId[0], workoutId);
+                if (ordinal >= 0) {
+                    completed.set(ordinal);
+                }
+            }
+        }, userId);
+        return new WorkoutProgress(current.getVersion(), courseId[0], completed);
+    }
 
-        dbConnection.disconnect();
+    // Порядковый номер тренировки в программе или -1, если тренировка относится к другой программе
+    private static int ordinalInCourse(CourseCatalog catalog, int courseId, int workoutId) {
+        int ordinal = catalog.getWorkoutOrdinal(workoutId);
+        List<Workout> workouts = catalog.getWorkouts(courseId);
+        return ordinal >= 0 && ordinal < workouts.size() && workouts.get(ordinal).getId() == workoutId ? ordinal : -1;
+    }
+
+    public List<String> getCoursesList() throws SQLException {
+        List<String> courses = new ArrayList<>();
+        for (Course course : getCatalog().getCourses()) {
+            courses.add(course.getName());
+        }
         return courses;
     }
 
     public void selectCourse(long userId, int courseId) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET course_id = ? WHERE user_id = ?";
         dbConnection.update(query, courseId, userId);
-        dbConnection.disconnect();
+        progressCache.remove(userId);
     }
 
     public List<String> getWorkoutsList(int courseId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT workout_name FROM workouts WHERE course_id = ?";
-        ResultSet resultSet = dbConnection.select(query, courseId);
         List<String> workouts = new ArrayList<>();
-
-        while (resultSet.next()) {
-            workouts.add(resultSet.getString("workout_name"));
+        for (Workout workout : getCatalog().getWorkouts(courseId)) {
+            workouts.add(workout.getName());
         }
-
-        dbConnection.disconnect();
         return workouts;
     }
 
     public List<String> getExercisesList(int workoutId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT exercise_name FROM exercises WHERE workout_id = ?";
-        ResultSet resultSet = dbConnection.select(query, workoutId);
         List<String> exercises = new ArrayList<>();
-
-        while (resultSet.next()) {
-            exercises.add(resultSet.getString("exercise_name"));
+        for (Exercise exercise : getCatalog().getExercises(workoutId)) {
+            exercises.add(exercise.getName());
         }
-
-        dbConnection.disconnect();
         return exercises;
     }
 
     public int getCourseIdForUser(long userId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT course_id FROM user_profiles WHERE user_id = ?";
-        ResultSet resultSet = dbConnection.select(query, userId);
-        int courseId = 0;
-
-        if (resultSet.next()) {
-            courseId = resultSet.getInt("course_id");
+        WorkoutProgress progress = progressCache.get(userId);
+        if (progress != null) {
+            return progress.courseId;
         }
-
-        dbConnection.disconnect();
-        return courseId;
+        String query = "SELECT course_id FROM user_profiles WHERE user_id = ?";
+        return dbConnection.queryFirst(query, resultSet -> resultSet.getInt("course_id"), 0, userId);
     }
 
     public void updateUserCourse(long userId, int courseId) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET course_id = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setInt(1, courseId);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
+        dbConnection.update(query, courseId, userId);
+        progressCache.remove(userId);
+    }
+
+    private static final class WorkoutProgress {
+        private final long catalogVersion;
+        private final int courseId;
+        private final BitSet completed;
+
+        private WorkoutProgress(long catalogVersion, int courseId, BitSet completed) {
+            this.catalogVersion = catalogVersion;
+            this.courseId = courseId;
+            this.completed = completed;
+        }
+
+        // Копия при записи: читатели никогда не видят изменяемую маску
+        private WorkoutProgress withCompleted(CourseCatalog catalog, int workoutId) {
+            int ordinal = ordinalInCourse(catalog, courseId, workoutId);
+            if (catalog.getVersion() != catalogVersion || ordinal < 0) {
+                return null;
+            }
+            BitSet updated = (BitSet) completed.clone();
+            updated.set(ordinal);
+            return new WorkoutProgress(catalogVersion, courseId, updated);
+        }
+
+        private WorkoutProgress withoutCompleted() {
+            return new WorkoutProgress(catalogVersion, courseId, new BitSet());
         }
     }
 }
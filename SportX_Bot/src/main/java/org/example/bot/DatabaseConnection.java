@@ -1,28 +1,44 @@
 package org.example.bot;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class DatabaseConnection {
 
-    protected Connection connection;
+    public interface ConnectionCallback<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
+    public interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    public interface RowCallback {
+        void process(ResultSet resultSet) throws SQLException;
+    }
+
     protected String url;
     protected String username;
     protected String password;
+    protected ConnectionPool pool;
+    private final Properties properties = new Properties();
+
+    // Соединение, арендованное текущим потоком внутри withConnection/inTransaction
+    private final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
 
     public DatabaseConnection() {
         loadDbConfig();
     }
 
     private void loadDbConfig() {
-        Properties properties = new Properties();
         try (InputStream input = new FileInputStream("db_config.properties")) {
             properties.load(input);
             this.url = properties.getProperty("db.url");
@@ -31,36 +47,120 @@ public class DatabaseConnection {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        this.pool = new ConnectionPool(url, username, password,
+                intProperty(properties, "db.pool.maxSize", 10),
+                longProperty(properties, "db.pool.acquireTimeoutMs", 5000),
+                longProperty(properties, "db.pool.validationIntervalMs", 30000),
+                longProperty(properties, "db.pool.maxLifetimeMs", 1800000),
+                longProperty(properties, "db.pool.leakDetectionMs", 60000));
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
     }
 
-    public void connect() throws SQLException {
-        connection = DriverManager.getConnection(url, username, password);
+    private static long longProperty(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
     }
 
-    public void disconnect() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+    // Выполняет callback на отдельном соединении из пула. Вложенные вызовы в том же потоке используют то же соединение.
+    public <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+        Connection current = boundConnection.get();
+        if (current != null) {
+            return callback.execute(current);
+        }
+        try (Connection connection = pool.acquire()) {
+            boundConnection.set(connection);
+            try {
+                return callback.execute(connection);
+            } finally {
+                boundConnection.remove();
+            }
         }
     }
 
-    public ResultSet select(String query, Object... parameters) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(query);
-        setParameters(statement, parameters);
-        return statement.executeQuery();
+    // То же, что withConnection, но в транзакции: commit при успехе, rollback при исключении
+    public <T> T inTransaction(ConnectionCallback<T> callback) throws SQLException {
+        return withConnection(connection -> {
+            if (!connection.getAutoCommit()) {
+                return callback.execute(connection);
+            }
+            connection.setAutoCommit(false);
+            try {
+                T result = callback.execute(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
     }
 
-    public void update(String query, Object... parameters) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            setParameters(statement, parameters);
-            statement.executeUpdate();
-        }
+    public <T> List<T> query(String query, RowMapper<T> mapper, Object... parameters) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                setParameters(statement, parameters);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<T> rows = new ArrayList<>();
+                    while (resultSet.next()) {
+                        rows.add(mapper.map(resultSet));
+                    }
+                    return rows;
+                }
+            }
+        });
     }
 
-    public void delete(String query, Object... parameters) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            setParameters(statement, parameters);
-            statement.executeUpdate();
-        }
+    // Обрабатывает строки по одной, не накапливая их в списке
+    public void queryEach(String query, RowCallback callback, Object... parameters) throws SQLException {
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                setParameters(statement, parameters);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        callback.process(resultSet);
+                    }
+                    return null;
+                }
+            }
+        });
+    }
+
+    public <T> T queryFirst(String query, RowMapper<T> mapper, T defaultValue, Object... parameters) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                setParameters(statement, parameters);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? mapper.map(resultSet) : defaultValue;
+                }
+            }
+        });
+    }
+
+    public int update(String query, Object... parameters) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                setParameters(statement, parameters);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    public int delete(String query, Object... parameters) throws SQLException {
+        return update(query, parameters);
+    }
+
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public PoolStats getPoolStats() {
+        return pool.getStats();
     }
 
     private void setParameters(PreparedStatement statement, Object... parameters) throws SQLException {
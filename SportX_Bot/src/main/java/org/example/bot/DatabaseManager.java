@@ -2,6 +2,7 @@ package org.example.bot;
 
 import org.example.recipes.RecipesCommand;
 import org.example.recipes.SpoonacularAPI;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -20,24 +21,40 @@ public class DatabaseManager {
         this.dbConnection = new DatabaseConnection();
         this.userProfileManager = new UserProfileManager(this.dbConnection);
         this.courseManager = new CourseManager(this.dbConnection);
-        this.sessionManager = new SessionManager(this.dbConnection);
+        this.courseManager.startCatalogPolling(Long.parseLong(this.dbConnection.getProperty("db.catalog.pollIntervalMs", "60000")));
+        this.sessionManager = new SessionManager(this.dbConnection,
+                Long.parseLong(this.dbConnection.getProperty("db.sessionCache.negativeTtlMs", "0")),
+                Long.parseLong(this.dbConnection.getProperty("db.sessionCache.ttlMs",
+                        String.valueOf(SessionManager.DEFAULT_TTL_MILLIS))),
+                Integer.parseInt(this.dbConnection.getProperty("db.sessionCache.maxEntries",
+                        String.valueOf(SessionManager.DEFAULT_MAX_ENTRIES))));
+        warmUpSessionCache();
         SpoonacularAPI spoonacularAPI = new SpoonacularAPI(TelegramBot.getApiToken());
         RecipesCommand recipesCommand = new RecipesCommand(spoonacularAPI, this);
         this.stateHandler = new StateHandler(this.bot, this.userProfileManager, this.sessionManager, this.courseManager, this.dbConnection, recipesCommand);
     }
 
-    public void connect() throws SQLException {
-        dbConnection.connect();
+    private void warmUpSessionCache() {
+        try {
+            sessionManager.warmUp();
+        } catch (SQLException e) {
+            LoggerUtil.logError(0, "Не удалось прогреть кэш сессий: " + e.getMessage());
+        }
     }
 
-    public void disconnect() throws SQLException {
-        dbConnection.disconnect();
+    public PoolStats getPoolStats() {
+        return dbConnection.getPoolStats();
     }
 
     public boolean isUserLoggedIn(long telegramChatId) throws SQLException {
         return sessionManager.isSessionActive(telegramChatId);
     }
 
+    // Сессия и наличие профиля одной проверкой (из кэша или одним запросом к БД)
+    public AuthStatus getAuthStatus(long telegramChatId) throws SQLException {
+        return sessionManager.getAuthStatus(telegramChatId);
+    }
+
     public boolean isProfileExists(long userId) throws SQLException {
         return userProfileManager.isProfileExists(userId);
     }
@@ -58,6 +75,10 @@ public class DatabaseManager {
         return stateHandler.getUserState(userId);
     }
 
+    public boolean deferWhilePasswordPending(long telegramChatId, Runnable update) {
+        return stateHandler.deferWhilePasswordPending(telegramChatId, update);
+    }
+
     public void addUserProfile(long userId, UserProfile profile) {
         userProfileManager.addUserProfile(userId, profile);
     }
@@ -71,17 +92,33 @@ public class DatabaseManager {
     }
 
     public String deleteUserProfileAsString(long userId) throws SQLException {
-        return userProfileManager.deleteUserProfileAsString(userId);
+        String result = userProfileManager.deleteUserProfileAsString(userId);
+        sessionManager.invalidate(userId);
+        courseManager.invalidateProgress(userId);
+        return result;
     }
 
     public String getCoursesAsString() throws SQLException {
         return courseManager.getCoursesAsString();
     }
 
+    // Принудительная перезагрузка справочника программ (например, после ручного изменения таблиц)
+    public CourseCatalog reloadCatalog() throws SQLException {
+        return courseManager.reloadCatalog();
+    }
+
     public List<Course> getCourses() throws SQLException {
         return courseManager.getCourses();
     }
 
+    public InlineKeyboardMarkup getCourseSelectionKeyboard() throws SQLException {
+        return courseManager.getCourseSelectionKeyboard();
+    }
+
+    public InlineKeyboardMarkup getCompleteWorkoutKeyboard(int workoutId) throws SQLException {
+        return courseManager.getCompleteWorkoutKeyboard(workoutId);
+    }
+
     public String getWorkoutsAsString(long userId) throws SQLException {
         return courseManager.getWorkoutsAsString(userId);
     }
@@ -0,0 +1,31 @@
+package org.example.bot;
+
+public class Exercise {
+    private final int id;
+    private final String name;
+    private final int repetitions;
+    private final int sets;
+
+    public Exercise(int id, String name, int repetitions, int sets) {
+        this.id = id;
+        this.name = name;
+        this.repetitions = repetitions;
+        this.sets = sets;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRepetitions() {
+        return repetitions;
+    }
+
+    public int getSets() {
+        return sets;
+    }
+}
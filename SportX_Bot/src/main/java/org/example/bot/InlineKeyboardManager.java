@@ -16,12 +16,11 @@ public class InlineKeyboardManager {
             InlineKeyboardButton button = new InlineKeyboardButton();
             button.setText(course.getName());
             button.setCallbackData(String.valueOf(course.getId()));
-            List<InlineKeyboardButton> row = new ArrayList<>();
-            row.add(button);
-            keyboardRows.add(row);
+            keyboardRows.add(List.of(button));
         }
 
-        keyboardMarkup.setKeyboard(keyboardRows);
+        // Клавиатура кэшируется в RenderedCatalog и отправляется многим пользователям - делаем ее неизменяемой
+        keyboardMarkup.setKeyboard(List.copyOf(keyboardRows));
         return keyboardMarkup;
     }
 
@@ -44,16 +43,12 @@ public class InlineKeyboardManager {
 
     public static InlineKeyboardMarkup getCompleteWorkoutKeyboard(int workoutId) {
         InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
-        List<List<InlineKeyboardButton>> keyboardRows = new ArrayList<>();
 
         InlineKeyboardButton completeButton = new InlineKeyboardButton();
         completeButton.setText(Icon.CHECK.get());
         completeButton.setCallbackData("complete_" + workoutId);
-        List<InlineKeyboardButton> row = new ArrayList<>();
-        row.add(completeButton);
-        keyboardRows.add(row);
 
-        keyboardMarkup.setKeyboard(keyboardRows);
+        keyboardMarkup.setKeyboard(List.of(List.of(completeButton)));
         return keyboardMarkup;
     }
 
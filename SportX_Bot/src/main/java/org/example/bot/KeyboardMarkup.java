@@ -5,32 +5,10 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.Keyboard
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class KeyboardMarkup {
 
-    private static final Map<String, String> buttonTextToCommandMap = new HashMap<>();
-
-    static {
-        buttonTextToCommandMap.put("/start", "/start");
-        buttonTextToCommandMap.put("/authors", "/authors");
-        buttonTextToCommandMap.put("/help", "/help");
-        buttonTextToCommandMap.put("/info", "/info");
-        buttonTextToCommandMap.put("/createprofile", "/createprofile");
-        buttonTextToCommandMap.put("/viewprofile", "/viewprofile");
-        buttonTextToCommandMap.put("/deleteprofile", "/deleteprofile");
-        buttonTextToCommandMap.put("/viewcourses", "/viewcourses");
-        buttonTextToCommandMap.put("/selectcourse", "/selectcourse");
-        buttonTextToCommandMap.put("/viewworkouts", "/viewworkouts");
-        buttonTextToCommandMap.put("/viewexercises", "/viewexercises");
-        buttonTextToCommandMap.put("/login", "/login");
-        buttonTextToCommandMap.put("/logout", "/logout");
-        buttonTextToCommandMap.put("/editprofile", "/editprofile");
-        buttonTextToCommandMap.put("/recipes", "/recipes");
-    }
-
     public static ReplyKeyboardMarkup getMainMenuKeyboard() {
         ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
         keyboardMarkup.setResizeKeyboard(true);
@@ -93,8 +71,4 @@ public class KeyboardMarkup {
         keyboardMarkup.setKeyboard(keyboardRows);
         return keyboardMarkup;
     }
-
-    public static String mapButtonTextToCommand(String text) {
-        return buttonTextToCommandMap.getOrDefault(text, "/unknown");
-    }
-}
\ No newline at end of file
+}
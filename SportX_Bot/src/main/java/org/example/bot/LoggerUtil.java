@@ -1,14 +1,39 @@
 package org.example.bot;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Properties;
 
 public class LoggerUtil {
 
     private static final String LOG_FILE_PATH = "bot_activity.log";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final AsyncFileAppender appender = createAppender();
+
+    // Отметка времени форматируется не чаще раза в секунду
+    private static volatile CachedTimestamp cachedTimestamp = new CachedTimestamp(0, "");
+
+    private static AsyncFileAppender createAppender() {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream("config.properties")) {
+            properties.load(input);
+        } catch (IOException e) {
+            System.err.println("Настройки логирования не загружены, используются значения по умолчанию: " + e.getMessage());
+        }
+        AsyncFileAppender fileAppender = new AsyncFileAppender(Paths.get(LOG_FILE_PATH),
+                Integer.parseInt(properties.getProperty("log.bufferSize", "8192")),
+                AsyncFileAppender.OverflowPolicy.valueOf(properties.getProperty("log.overflowPolicy", "DROP").trim().toUpperCase()),
+                Long.parseLong(properties.getProperty("log.flushIntervalMs", "200")),
+                Long.parseLong(properties.getProperty("log.maxFileBytes", "10485760")),
+                Boolean.parseBoolean(properties.getProperty("log.rotateDaily", "true")));
+        Runtime.getRuntime().addShutdownHook(new Thread(fileAppender::close, "log-writer-shutdown"));
+        return fileAppender;
+    }
 
     public static String getLogFilePath() {
         return LOG_FILE_PATH;
@@ -24,16 +49,38 @@ public class LoggerUtil {
         log("ERROR", userId, message);
     }
 
+    // Дописывает буфер в файл; нужен перед синхронным чтением лога
+    public static void flush() {
+        appender.flush();
+    }
+
+    public static AsyncFileAppender getAppender() {
+        return appender;
+    }
+
     // Общий метод для записи логов
     private static void log(String level, long userId, String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        String logMessage = String.format("[%s] [%s] [User ID: %d] %s", timestamp, level, userId, message);
+        String logMessage = "[" + timestamp() + "] [" + level + "] [User ID: " + userId + "] " + message;
+        appender.append(logMessage);
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE_PATH, true))) {
-            writer.write(logMessage);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Ошибка при записи в лог файл: " + e.getMessage());
+    private static String timestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedTimestamp cached = cachedTimestamp;
+        if (cached.second != second) {
+            cached = new CachedTimestamp(second, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+            cachedTimestamp = cached;
+        }
+        return cached.formatted;
+    }
+
+    private static final class CachedTimestamp {
+        private final long second;
+        private final String formatted;
+
+        private CachedTimestamp(long second, String formatted) {
+            this.second = second;
+            this.formatted = formatted;
         }
     }
 }
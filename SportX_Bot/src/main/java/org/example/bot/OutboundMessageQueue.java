@@ -0,0 +1,425 @@
+package org.example.bot;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Очередь исходящих сообщений: отправка через executeAsync без блокировки обработчиков обновлений,
+// общий лимит и лимит на чат (ведра токенов), приоритет ответов пользователю над рассылками,
+// повтор после 429 с учетом retry_after. В одном чате одновременно отправляется не более одного
+// сообщения, поэтому порядок сообщений внутри чата сохраняется.
+// У каждого чата своя очередь. Свободные чаты, которые можно обслужить сейчас, лежат в очереди готовых
+// (по первому сообщению чата), ограниченные по частоте - в очереди отложенных по времени готовности,
+// поэтому выбор следующего сообщения не перебирает все ожидающие сообщения.
+public class OutboundMessageQueue implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(OutboundMessageQueue.class.getName());
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long IDLE_SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    public interface Sender {
+        CompletableFuture<Message> send(SendMessage message);
+    }
+
+    private final Sender sender;
+    private final TokenBucket globalBucket;
+    private final double chatPermitsPerSecond;
+    private final int chatBurst;
+    private final int capacity;
+    private final int maxRetries;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Long, ChatState> chats = new HashMap<>();
+    // Чаты, первое сообщение которых можно отправить сейчас: по его приоритету, затем по времени постановки
+    private final TreeSet<ChatState> ready = new TreeSet<>(Comparator.comparing((ChatState chat) -> chat.scheduledHead));
+    // Чаты, ожидающие лимита или retry_after: по времени, когда они станут готовы
+    private final TreeSet<ChatState> delayed = new TreeSet<>(Comparator.comparingLong((ChatState chat) -> chat.readyAt)
+            .thenComparingLong(chat -> chat.chatId));
+    private final Thread thread;
+    private long sequence;
+    private int queued;
+    private int interactiveDepth;
+    private long lastIdleSweep = System.nanoTime();
+    private volatile boolean closed;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong globalThrottles = new AtomicLong();
+    private final AtomicLong chatThrottles = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong totalSendNanos = new AtomicLong();
+
+    public OutboundMessageQueue(Sender sender, double globalPerSecond, double chatPerSecond, int chatBurst,
+                                int capacity, int maxRetries) {
+        if (capacity <= 0 || maxRetries < 0 || chatPerSecond <= 0 || chatBurst <= 0) {
+            throw new IllegalArgumentException("Параметры очереди отправки должны быть положительными");
+        }
+        this.sender = sender;
+        this.globalBucket = new TokenBucket(globalPerSecond, (int) Math.max(1, Math.ceil(globalPerSecond)));
+        this.chatPermitsPerSecond = chatPerSecond;
+        this.chatBurst = chatBurst;
+        this.capacity = capacity;
+        this.maxRetries = maxRetries;
+        this.thread = new Thread(this::run, "outbound-sender");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Ставит сообщение в очередь; результат завершается после доставки или окончательной ошибки
+    public CompletableFuture<Message> submit(long chatId, SendMessage message, Priority priority) {
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (closed || queued >= capacity) {
+                rejected.incrementAndGet();
+                result.completeExceptionally(new RejectedExecutionException("Очередь отправки переполнена"));
+                return result;
+            }
+            Outgoing outgoing = new Outgoing(chatId, message, priority, sequence++, result);
+            ChatState chat = chats.computeIfAbsent(chatId, ChatState::new);
+            enqueue(chat, outgoing);
+            if (chat.slot == Slot.READY && outgoing.compareTo(chat.scheduledHead) < 0) {
+                // новое сообщение обгоняет прежнее первое - позиция чата среди готовых меняется
+                ready.remove(chat);
+                chat.scheduledHead = outgoing;
+                ready.add(chat);
+            } else if (chat.slot == Slot.NONE) {
+                schedule(chat, System.nanoTime());
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return priority == Priority.INTERACTIVE ? interactiveDepth : queued - interactiveDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getRetryCount() {
+        return retried.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getGlobalThrottleCount() {
+        return globalThrottles.get();
+    }
+
+    public long getChatThrottleCount() {
+        return chatThrottles.get();
+    }
+
+    // Среднее время от постановки в очередь до доставки
+    public long getAverageLatencyMillis() {
+        long count = sent.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    // Среднее время одного запроса к Telegram
+    public long getAverageSendMillis() {
+        long count = sent.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalSendNanos.get() / count);
+    }
+
+    public String getStats() {
+        return String.format("OutboundMessageQueue[interactive=%d, bulk=%d, sent=%d, failed=%d, retried=%d, rejected=%d, " +
+                        "globalThrottles=%d, chatThrottles=%d, avgLatency=%dms, maxLatency=%dms, avgSend=%dms]",
+                getQueueDepth(Priority.INTERACTIVE), getQueueDepth(Priority.BULK), getSentCount(), getFailedCount(),
+                getRetryCount(), getRejectedCount(), getGlobalThrottleCount(), getChatThrottleCount(),
+                getAverageLatencyMillis(), getMaxLatencyMillis(), getAverageSendMillis());
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (ChatState chat : chats.values()) {
+                for (Outgoing outgoing : chat.queue) {
+                    outgoing.result.completeExceptionally(new RejectedExecutionException("Очередь отправки остановлена"));
+                }
+                chat.queue.clear();
+                chat.slot = Slot.NONE;
+            }
+            ready.clear();
+            delayed.clear();
+            queued = 0;
+            interactiveDepth = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            Outgoing next;
+            try {
+                next = takeNext();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next != null) {
+                send(next);
+            }
+        }
+    }
+
+    // Выбирает первое по приоритету сообщение среди готовых чатов; иначе ждет ближайшего отложенного чата
+    private Outgoing takeNext() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed) {
+                sweepIdleChats();
+                long now = System.nanoTime();
+                promoteDelayed(now);
+                if (ready.isEmpty()) {
+                    if (delayed.isEmpty()) {
+                        changed.await(); // сообщений нет или все чаты ждут ответа на отправленные сообщения
+                    } else {
+                        chatThrottles.incrementAndGet();
+                        changed.awaitNanos(delayed.first().readyAt - now);
+                    }
+                    continue;
+                }
+                long globalWait = globalBucket.nanosUntilAvailable();
+                if (globalWait > 0) {
+                    globalThrottles.incrementAndGet();
+                    changed.awaitNanos(globalWait);
+                    continue;
+                }
+
+                ChatState chat = ready.pollFirst();
+                chat.slot = Slot.NONE;
+                chat.scheduledHead = null;
+                if (!chat.bucket.tryAcquire()) {
+                    schedule(chat, now);
+                    continue;
+                }
+                Outgoing outgoing = chat.queue.poll();
+                queued--;
+                if (outgoing.priority == Priority.INTERACTIVE) {
+                    interactiveDepth--;
+                }
+                globalBucket.tryAcquire();
+                chat.inFlight = true;
+                return outgoing;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Отложенные чаты, время которых наступило, переходят в готовые
+    private void promoteDelayed(long now) {
+        while (!delayed.isEmpty() && delayed.first().readyAt - now <= 0) {
+            ChatState chat = delayed.pollFirst();
+            chat.slot = Slot.NONE;
+            schedule(chat, now);
+        }
+    }
+
+    // Ставит свободный чат с сообщениями в готовые или отложенные
+    private void schedule(ChatState chat, long now) {
+        if (chat.inFlight || chat.queue.isEmpty()) {
+            return;
+        }
+        long wait = Math.max(chat.notBefore - now, chat.bucket.nanosUntilAvailable());
+        if (wait > 0) {
+            chat.readyAt = now + wait;
+            chat.slot = Slot.DELAYED;
+            delayed.add(chat);
+        } else {
+            chat.scheduledHead = chat.queue.peek();
+            chat.slot = Slot.READY;
+            ready.add(chat);
+        }
+    }
+
+    private void enqueue(ChatState chat, Outgoing outgoing) {
+        chat.queue.add(outgoing);
+        queued++;
+        if (outgoing.priority == Priority.INTERACTIVE) {
+            interactiveDepth++;
+        }
+    }
+
+    private void send(Outgoing outgoing) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<Message> future;
+        try {
+            future = sender.send(outgoing.message);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((message, error) -> onComplete(outgoing, startedAt, message, error));
+    }
+
+    private void onComplete(Outgoing outgoing, long startedAt, Message message, Throwable error) {
+        long now = System.nanoTime();
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        lock.lock();
+        try {
+            ChatState chat = chats.get(outgoing.chatId);
+            chat.inFlight = false;
+            Integer retryAfter = retryAfterSeconds(cause);
+            if (retryAfter != null && outgoing.attempts < maxRetries && !closed) {
+                // сообщение возвращается в очередь со своим номером и остается первым в чате
+                outgoing.attempts++;
+                retried.incrementAndGet();
+                chat.notBefore = now + TimeUnit.SECONDS.toNanos(retryAfter);
+                enqueue(chat, outgoing);
+                schedule(chat, now);
+                logger.warning("Telegram ограничил отправку в чат " + outgoing.chatId + ", повтор через " + retryAfter + " с");
+                changed.signal();
+                return;
+            }
+            if (!closed) {
+                schedule(chat, now);
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (cause == null) {
+            long latency = now - outgoing.enqueuedAt;
+            sent.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            totalSendNanos.addAndGet(now - startedAt);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            outgoing.result.complete(message);
+        } else {
+            failed.incrementAndGet();
+            logger.log(Level.FINE, "Не удалось отправить сообщение в чат " + outgoing.chatId, cause);
+            outgoing.result.completeExceptionally(cause);
+        }
+    }
+
+    private static Integer retryAfterSeconds(Throwable error) {
+        if (error instanceof TelegramApiRequestException) {
+            TelegramApiRequestException requestException = (TelegramApiRequestException) error;
+            if (requestException.getErrorCode() != null && requestException.getErrorCode() == TOO_MANY_REQUESTS) {
+                Integer retryAfter = requestException.getParameters() != null
+                        ? requestException.getParameters().getRetryAfter() : null;
+                return retryAfter != null ? retryAfter : 1;
+            }
+        }
+        return null;
+    }
+
+    // Состояние чата держим, пока у него есть сообщения или не восстановился лимит
+    private void sweepIdleChats() {
+        long now = System.nanoTime();
+        if (now - lastIdleSweep < IDLE_SWEEP_INTERVAL_NANOS) {
+            return;
+        }
+        lastIdleSweep = now;
+        chats.values().removeIf(chat -> chat.queue.isEmpty() && !chat.inFlight && chat.slot == Slot.NONE
+                && chat.notBefore - now <= 0 && chat.bucket.isFull());
+    }
+
+    private enum Slot {
+        NONE,
+        READY,
+        DELAYED
+    }
+
+    private final class ChatState {
+        private final long chatId;
+        private final TokenBucket bucket = new TokenBucket(chatPermitsPerSecond, chatBurst);
+        // Сообщения чата по приоритету, затем по времени постановки; повтор сохраняет свой номер и остается первым
+        private final PriorityQueue<Outgoing> queue = new PriorityQueue<>();
+        private boolean inFlight;
+        private long notBefore = System.nanoTime();
+        private Slot slot = Slot.NONE;
+        // Первое сообщение на момент постановки в готовые - ключ сортировки, пока чат в ready
+        private Outgoing scheduledHead;
+        private long readyAt;
+
+        private ChatState(long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private static final class Outgoing implements Comparable<Outgoing> {
+        private final long chatId;
+        private final SendMessage message;
+        private final Priority priority;
+        private final long sequence;
+        private final CompletableFuture<Message> result;
+        private final long enqueuedAt = System.nanoTime();
+        private int attempts;
+
+        private Outgoing(long chatId, SendMessage message, Priority priority, long sequence, CompletableFuture<Message> result) {
+            this.chatId = chatId;
+            this.message = message;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.result = result;
+        }
+
+        @Override
+        public int compareTo(Outgoing other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
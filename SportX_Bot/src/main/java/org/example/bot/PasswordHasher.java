@@ -0,0 +1,197 @@
+package org.example.bot;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Хеширование и проверка паролей BCrypt в отдельном пуле по числу ядер: десятки миллисекунд чистого CPU
+// на каждый вызов не занимают потоки обработки обновлений. Очередь ограничена - при всплеске входов
+// лишние запросы сразу отклоняются (future завершается RejectedExecutionException), а не копятся.
+// Хеш хранится обычной строкой BCrypt "$2a$12$..." (60 символов): алгоритм и сила уже записаны в ней самой.
+public class PasswordHasher implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(PasswordHasher.class.getName());
+    private static final int MAX_STRENGTH = 14;
+    // Префикс, с которым хеши писала предыдущая версия; такие хеши проверяются и при перехешировании записываются без него
+    private static final String LEGACY_PREFIX = "{bcrypt}";
+
+    private final int strength;
+    private final boolean upgradeExisting;
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    public PasswordHasher(int strength, int threads, int queueCapacity) {
+        this(strength, true, threads, queueCapacity);
+    }
+
+    // upgradeExisting = false: новые хеши пишутся с этой силой, но уже сохраненные при входе не перехешируются
+    PasswordHasher(int strength, boolean upgradeExisting, int threads, int queueCapacity) {
+        this.strength = strength;
+        this.upgradeExisting = upgradeExisting;
+        this.encoder = new BCryptPasswordEncoder(strength);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Политика силы - закрепленное значение password.strength: по нему же решается, какие хеши перехешировать.
+    // Без него сила подбирается замером на этом железе (наибольшая, при которой хеш считается не дольше
+    // targetMillis, но не ниже minStrength) и действует только для новых хешей: один удачный замер на
+    // быстром старте иначе навсегда поднял бы силу всех вошедших пользователей.
+    public static PasswordHasher create(Integer pinnedStrength, long targetMillis, int minStrength, int threads,
+                                        int queueCapacity) {
+        if (pinnedStrength != null) {
+            logger.info("Сила BCrypt из password.strength: " + pinnedStrength);
+            return new PasswordHasher(pinnedStrength, true, threads, queueCapacity);
+        }
+        int strength = calibrate(targetMillis, minStrength);
+        logger.info("password.strength не задан, сила BCrypt по результатам замера: " + strength
+                + "; задайте ее в password.strength, чтобы включить перехеширование сохраненных паролей");
+        return new PasswordHasher(strength, false, threads, queueCapacity);
+    }
+
+    // Каждая ступень силы удваивает время, поэтому достаточно одного замера на минимальной
+    static int calibrate(long targetMillis, int minStrength) {
+        new BCryptPasswordEncoder(4).encode("warm-up");
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double millis = Math.max((System.nanoTime() - start) / 1_000_000.0, 0.001);
+
+        int strength = minStrength;
+        while (strength < MAX_STRENGTH && millis * 2 <= targetMillis) {
+            millis *= 2;
+            strength++;
+        }
+        return strength;
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> encodedPassword != null && encoder.matches(rawPassword, stripLegacyPrefix(encodedPassword)));
+    }
+
+    // Хеш записан с меньшей силой, чем закрепленная политика, или со старым префиксом; проверка дешевая
+    public boolean needsUpgrade(String encodedPassword) {
+        if (!upgradeExisting || encodedPassword == null) {
+            return false;
+        }
+        return encodedPassword.startsWith(LEGACY_PREFIX) || encoder.upgradeEncoding(encodedPassword);
+    }
+
+    private static String stripLegacyPrefix(String encodedPassword) {
+        return encodedPassword.startsWith(LEGACY_PREFIX)
+                ? encodedPassword.substring(LEGACY_PREFIX.length())
+                : encodedPassword;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                record(totalQueueWaitNanos, maxQueueWaitNanos, startedAt - queuedAt);
+                T value;
+                try {
+                    value = work.get();
+                } catch (RuntimeException e) {
+                    finish(startedAt);
+                    result.completeExceptionally(e);
+                    return;
+                }
+                // метрики обновляются до завершения future, чтобы ожидающий видел их актуальными
+                finish(startedAt);
+                result.complete(value);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void finish(long startedAt) {
+        record(totalHashNanos, maxHashNanos, System.nanoTime() - startedAt);
+        completed.incrementAndGet();
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public boolean isUpgradingExisting() {
+        return upgradeExisting;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public double getAverageQueueWaitMillis() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalQueueWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1_000_000.0;
+    }
+
+    public double getAverageHashMillis() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalHashNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxHashMillis() {
+        return maxHashNanos.get() / 1_000_000.0;
+    }
+
+    public String getStats() {
+        return String.format(Locale.ROOT,
+                "PasswordHasher[strength=%d, pinned=%b, queued=%d, completed=%d, rejected=%d, queueWaitAvg=%.1fms, queueWaitMax=%.1fms, " +
+                        "hashAvg=%.1fms, hashMax=%.1fms]",
+                strength, upgradeExisting, getQueueDepth(), getCompletedCount(), getRejectedCount(), getAverageQueueWaitMillis(),
+                getMaxQueueWaitMillis(), getAverageHashMillis(), getMaxHashMillis());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.bot;
+
+// Снимок состояния пула соединений
+public class PoolStats {
+    private final int maxSize;
+    private final int total;
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final long acquireCount;
+    private final long averageAcquireNanos;
+    private final long maxAcquireNanos;
+    private final long timeouts;
+    private final long leaks;
+
+    public PoolStats(int maxSize, int total, int active, int idle, int waiters, long acquireCount,
+                     long averageAcquireNanos, long maxAcquireNanos, long timeouts, long leaks) {
+        this.maxSize = maxSize;
+        this.total = total;
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.acquireCount = acquireCount;
+        this.averageAcquireNanos = averageAcquireNanos;
+        this.maxAcquireNanos = maxAcquireNanos;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public long getAverageAcquireNanos() {
+        return averageAcquireNanos;
+    }
+
+    public long getMaxAcquireNanos() {
+        return maxAcquireNanos;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getLeaks() {
+        return leaks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats[max=%d, total=%d, active=%d, idle=%d, waiters=%d, acquires=%d, avgAcquire=%dus, maxAcquire=%dus, timeouts=%d, leaks=%d]",
+                maxSize, total, active, idle, waiters, acquireCount,
+                averageAcquireNanos / 1000, maxAcquireNanos / 1000, timeouts, leaks);
+    }
+}
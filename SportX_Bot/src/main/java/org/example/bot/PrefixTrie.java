@@ -0,0 +1,211 @@
+package org.example.bot;
+
+// Сжатое префиксное дерево маршрутов: точные ключи ("/start", "edit_login") и префиксы с числовым
+// идентификатором в конце ("workout_" + id). Ребро хранит целый фрагмент ключа, поэтому поиск по "edit_login"
+// проходит два-три узла, а не десять. Поиск идет по исходной строке без substring/split; число идентификатора
+// разбирается один раз и возвращается в Match вместе с найденным значением.
+public class PrefixTrie<V> {
+
+    private final Node<V> root = new Node<>("");
+    private int size;
+
+    public void put(String key, V value) {
+        Node<V> node = nodeFor(key);
+        if (node.exact == null) {
+            size++;
+        }
+        node.exact = value;
+    }
+
+    // Значение для ключей вида prefix + неотрицательное число
+    public void putWithId(String prefix, V value) {
+        Node<V> node = nodeFor(prefix);
+        if (node.withId == null) {
+            size++;
+        }
+        node.withId = value;
+    }
+
+    // Только точное совпадение
+    public V get(String key) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            node = node.child(key, i);
+            if (node == null) {
+                return null;
+            }
+            i += node.label.length();
+        }
+        return node.exact;
+    }
+
+    // Точное совпадение, иначе самый длинный префикс с идентификатором, за которым следует корректное число.
+    // Число разбирается здесь же, один раз, и возвращается вместе со значением; null - маршрута нет
+    public Match<V> route(String key) {
+        Node<V> node = root;
+        V withId = null;
+        int idOffset = 0;
+        int i = 0;
+        while (true) {
+            if (node.withId != null) {
+                withId = node.withId;
+                idOffset = i;
+            }
+            if (i == key.length()) {
+                if (node.exact != null) {
+                    return new Match<>(node.exact, -1);
+                }
+                break;
+            }
+            node = node.child(key, i);
+            if (node == null) {
+                break;
+            }
+            i += node.label.length();
+        }
+        if (withId == null) {
+            return null;
+        }
+        int id = parseId(key, idOffset);
+        return id >= 0 ? new Match<>(withId, id) : null;
+    }
+
+    // Число с позиции from до конца строки; -1, если там не только цифры или значение не помещается в int
+    public static int parseId(CharSequence key, int from) {
+        int length = key.length();
+        if (from >= length) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Спускается по ключу, при необходимости разделяя ребро на общий префикс и остаток
+    private Node<V> nodeFor(String key) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node<V> child = node.childStartingWith(key.charAt(i));
+            if (child == null) {
+                Node<V> leaf = new Node<>(key.substring(i));
+                node.addChild(leaf);
+                return leaf;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node<V> middle = new Node<>(child.label.substring(0, common));
+                node.replaceChild(child, middle);
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int max = Math.min(label.length(), key.length() - from);
+        int common = 0;
+        while (common < max && label.charAt(common) == key.charAt(from + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private static final class Node<V> {
+        private String label;
+        // у детей разные первые символы; их мало, поэтому линейный поиск быстрее двоичного
+        private char[] firsts = new char[0];
+        private Node<V>[] children = newArray(0);
+        private V exact;
+        private V withId;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        // Ребро, целиком совпадающее с ключом начиная с позиции from
+        private Node<V> child(String key, int from) {
+            char first = key.charAt(from);
+            for (int i = 0; i < firsts.length; i++) {
+                if (firsts[i] == first) {
+                    Node<V> child = children[i];
+                    return key.startsWith(child.label, from) ? child : null;
+                }
+            }
+            return null;
+        }
+
+        private Node<V> childStartingWith(char first) {
+            for (int i = 0; i < firsts.length; i++) {
+                if (firsts[i] == first) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(Node<V> child) {
+            int length = firsts.length;
+            char[] newFirsts = new char[length + 1];
+            Node<V>[] newChildren = newArray(length + 1);
+            System.arraycopy(firsts, 0, newFirsts, 0, length);
+            System.arraycopy(children, 0, newChildren, 0, length);
+            newFirsts[length] = child.label.charAt(0);
+            newChildren[length] = child;
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        // Первый символ у замены тот же, поэтому firsts не меняется
+        private void replaceChild(Node<V> oldChild, Node<V> newChild) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == oldChild) {
+                    children[i] = newChild;
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <V> Node<V>[] newArray(int length) {
+            return (Node<V>[]) new Node[length];
+        }
+    }
+
+    // Найденный маршрут; id - разобранное число для маршрутов с идентификатором, -1 для точных
+    public static final class Match<V> {
+        private final V value;
+        private final int id;
+
+        private Match(V value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.bot;
+
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Готовые тексты и клавиатуры для экранов справочника. Строятся один раз на версию CourseCatalog
+// и подменяются вместе с ней, поэтому горячие экраны отдаются без форматирования и аллокаций.
+public class RenderedCatalog {
+
+    private final CourseCatalog catalog;
+    private final String coursesHtml;
+    private final Map<Integer, String> workoutsHtml = new HashMap<>();
+    private final Map<Integer, String> exercisesHtml = new HashMap<>();
+    private final Map<Integer, InlineKeyboardMarkup> completeWorkoutKeyboards = new HashMap<>();
+    private final InlineKeyboardMarkup courseSelectionKeyboard;
+
+    public RenderedCatalog(CourseCatalog catalog) {
+        this.catalog = catalog;
+
+        StringBuilder courses = new StringBuilder();
+        for (Course course : catalog.getCourses()) {
+            appendDescribed(courses, course.getName(), course.getDescription());
+
+            StringBuilder workouts = new StringBuilder();
+            for (Workout workout : catalog.getWorkouts(course.getId())) {
+                appendDescribed(workouts, workout.getName(), workout.getDescription());
+                exercisesHtml.put(workout.getId(), renderExercises(catalog.getExercises(workout.getId())));
+                completeWorkoutKeyboards.put(workout.getId(), InlineKeyboardManager.getCompleteWorkoutKeyboard(workout.getId()));
+            }
+            workoutsHtml.put(course.getId(), workouts.toString());
+        }
+        this.coursesHtml = courses.toString();
+        this.courseSelectionKeyboard = InlineKeyboardManager.getCourseSelectionKeyboard(catalog.getCourses());
+    }
+
+    private static void appendDescribed(StringBuilder builder, String name, String description) {
+        builder.append("<b>").append(name).append("</b>\n<b>Описание:</b> <i>").append(description).append("</i>\n\n");
+    }
+
+    private static String renderExercises(List<Exercise> exercises) {
+        StringBuilder builder = new StringBuilder();
+        for (Exercise exercise : exercises) {
+            builder.append("<b>").append(exercise.getName()).append("</b>\n<b>Повторения:</b> ")
+                    .append(exercise.getRepetitions()).append(", <b>Подходы:</b> ")
+                    .append(exercise.getSets()).append("\n\n");
+        }
+        return builder.toString();
+    }
+
+    public CourseCatalog getCatalog() {
+        return catalog;
+    }
+
+    public String getCoursesHtml() {
+        return coursesHtml;
+    }
+
+    public String getWorkoutsHtml(int courseId) {
+        return workoutsHtml.getOrDefault(courseId, "");
+    }
+
+    public String getExercisesHtml(int workoutId) {
+        return exercisesHtml.getOrDefault(workoutId, "");
+    }
+
+    public InlineKeyboardMarkup getCourseSelectionKeyboard() {
+        return courseSelectionKeyboard;
+    }
+
+    // Для тренировок вне справочника клавиатура строится на лету
+    public InlineKeyboardMarkup getCompleteWorkoutKeyboard(int workoutId) {
+        InlineKeyboardMarkup keyboard = completeWorkoutKeyboards.get(workoutId);
+        return keyboard != null ? keyboard : InlineKeyboardManager.getCompleteWorkoutKeyboard(workoutId);
+    }
+}
@@ -1,8 +1,10 @@
 package org.example.bot;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
 import java.util.logging.Logger;
 
 public class SessionManager {
@@ -10,47 +12,146 @@ public class SessionManager {
     private final DatabaseConnection dbConnection;
     private static final Logger logger = Logger.getLogger(SessionManager.class.getName());
 
+    private static final String AUTH_STATUS_QUERY = "SELECT " +
+            "(SELECT COUNT(*) FROM user_sessions WHERE telegram_chat_id = ?) AS sessions, " +
+            "(SELECT COUNT(*) FROM user_profiles WHERE user_id = ?) AS profiles";
+
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    // Кэш статуса авторизации по telegram_chat_id с вытеснением давно не использованных записей.
+    // Авторизованные записи живут ttlMillis: сессию могут завершить в обход этого процесса (другой экземпляр,
+    // ручное удаление строки), поэтому по истечении срока статус перечитывается из БД.
+    // Неавторизованные кэшируются только при negativeTtlMillis > 0.
+    private final Map<Long, CachedStatus> authCache;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
     public SessionManager(DatabaseConnection dbConnection) {
+        this(dbConnection, 0);
+    }
+
+    public SessionManager(DatabaseConnection dbConnection, long negativeTtlMillis) {
+        this(dbConnection, negativeTtlMillis, DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public SessionManager(DatabaseConnection dbConnection, long negativeTtlMillis, long ttlMillis, int maxEntries) {
+        this(dbConnection, negativeTtlMillis, ttlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    SessionManager(DatabaseConnection dbConnection, long negativeTtlMillis, long ttlMillis, int maxEntries,
+                   LongSupplier clock) {
         this.dbConnection = dbConnection;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.authCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedStatus> eldest) {
+                return size() > SessionManager.this.maxEntries;
+            }
+        };
     }
 
-    public boolean isSessionActive(long telegramChatId) throws SQLException {
-        dbConnection.connect();
-        String query = "SELECT COUNT(*) FROM user_sessions WHERE telegram_chat_id = ?";
-        ResultSet resultSet = dbConnection.select(query, telegramChatId);
-        boolean isActive = false;
+    // Заполняет кэш активными сессиями из таблицы при старте, не больше maxEntries записей
+    public int warmUp() throws SQLException {
+        if (ttlMillis <= 0 || maxEntries <= 0) {
+            return 0;
+        }
+        String query = "SELECT us.telegram_chat_id " +
+                "FROM user_sessions us " +
+                "JOIN user_profiles up ON up.user_id = us.telegram_chat_id " +
+                "GROUP BY us.telegram_chat_id " +
+                "LIMIT ?";
+        List<Long> authenticated = dbConnection.query(query, resultSet -> resultSet.getLong("telegram_chat_id"),
+                maxEntries);
+        for (long telegramChatId : authenticated) {
+            cache(telegramChatId, new AuthStatus(true, true));
+        }
+        logger.info("Кэш сессий прогрет: " + authenticated.size() + " активных сессий");
+        return authenticated.size();
+    }
 
-        if (resultSet.next()) {
-            isActive = resultSet.getInt(1) > 0;
+    public AuthStatus getAuthStatus(long telegramChatId) throws SQLException {
+        CachedStatus cached;
+        synchronized (authCache) {
+            cached = authCache.get(telegramChatId);
+        }
+        if (cached != null && clock.getAsLong() < cached.expiresAt) {
+            return cached.status;
         }
+        AuthStatus status = dbConnection.queryFirst(AUTH_STATUS_QUERY,
+                resultSet -> new AuthStatus(resultSet.getInt("sessions") > 0, resultSet.getInt("profiles") > 0),
+                AuthStatus.ANONYMOUS, telegramChatId, telegramChatId);
+        cache(telegramChatId, status);
+        return status;
+    }
 
-        dbConnection.disconnect();
+    public boolean isSessionActive(long telegramChatId) throws SQLException {
+        boolean isActive = getAuthStatus(telegramChatId).isSessionActive();
         //logger.info("Сессия для " + telegramChatId + " активна: " + isActive);
         return isActive;
     }
 
     public void createSession(long userId, long telegramChatId) throws SQLException {
-        dbConnection.connect();
         String query = "INSERT INTO user_sessions (user_id, telegram_chat_id) VALUES (?, ?)";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setLong(1, userId);
-            statement.setLong(2, telegramChatId);
-            statement.executeUpdate();
-            logger.info("Сессия создана для пользователя: " + userId + " с chatId: " + telegramChatId);
-        } finally {
-            dbConnection.disconnect();
+        dbConnection.update(query, userId, telegramChatId);
+        if (userId == telegramChatId) {
+            cache(telegramChatId, new AuthStatus(true, true));
+        } else {
+            // профиль для этого чата не обязательно существует - перечитаем при следующей проверке
+            invalidate(telegramChatId);
         }
+        logger.info("Сессия создана для пользователя: " + userId + " с chatId: " + telegramChatId);
     }
 
 
     public void logoutUser(long telegramChatId) throws SQLException {
-        dbConnection.connect();
         String query = "DELETE FROM user_sessions WHERE telegram_chat_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setLong(1, telegramChatId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
+        dbConnection.delete(query, telegramChatId);
+        CachedStatus previous;
+        synchronized (authCache) {
+            previous = authCache.get(telegramChatId);
+        }
+        if (previous != null) {
+            cache(telegramChatId, new AuthStatus(false, previous.status.isProfileExists()));
+        }
+    }
+
+    // Сбрасывает запись кэша, например после удаления профиля
+    public void invalidate(long telegramChatId) {
+        synchronized (authCache) {
+            authCache.remove(telegramChatId);
+        }
+    }
+
+    public int getCachedSessionCount() {
+        synchronized (authCache) {
+            return authCache.size();
+        }
+    }
+
+    private void cache(long telegramChatId, AuthStatus status) {
+        long ttl = status.isAuthenticated() ? ttlMillis : negativeTtlMillis;
+        if (ttl <= 0) {
+            invalidate(telegramChatId);
+            return;
+        }
+        synchronized (authCache) {
+            authCache.put(telegramChatId, new CachedStatus(status, clock.getAsLong() + ttl));
+        }
+    }
+
+    private static final class CachedStatus {
+        private final AuthStatus status;
+        private final long expiresAt;
+
+        private CachedStatus(AuthStatus status, long expiresAt) {
+            this.status = status;
+            this.expiresAt = expiresAt;
         }
     }
 }
@@ -1,15 +1,16 @@
 package org.example.bot;
 
 import org.example.recipes.RecipesCommand;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiConsumer;
 
 public class StateHandler {
@@ -19,8 +20,16 @@ public class StateHandler {
     private final SessionManager sessionManager;
     private final CourseManager courseManager;
     private final DatabaseConnection dbConnection;
-    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
-    private final Map<Long, UserState> userStates = new HashMap<>();
+    private final PasswordHasher passwordHasher;
+    private final VerifiedLoginCache verifiedLogins;
+    // Незавершенные сценарии (создание профиля, вход, редактирование) забываются после 30 минут простоя
+    private static final long STATE_TTL_MILLIS = 30 * 60 * 1000L;
+    private static final int MAX_TRACKED_USERS = 100_000;
+
+    private final UserStateStore userStates;
+    // Чаты, чей пароль сейчас хешируется или проверяется: их следующие обновления откладываются до продолжения,
+    // иначе они обработались бы в еще не смененном состоянии (второй пароль, команда до создания сессии)
+    private final Map<Long, List<Runnable>> pendingPasswords = new HashMap<>();
     private final Map<UserState, BiConsumer<Long, String>> stateHandlers = new HashMap<>();
     private final RecipesCommand recipesCommand;
 
@@ -31,6 +40,17 @@ public class StateHandler {
         this.courseManager = courseManager;
         this.dbConnection = dbConnection;
         this.recipesCommand = recipesCommand; // Добавьте это
+        this.userStates = new UserStateStore(STATE_TTL_MILLIS, MAX_TRACKED_USERS, userProfileManager::removeUserProfile);
+        String pinnedStrength = dbConnection.getProperty("password.strength", "").trim();
+        this.passwordHasher = PasswordHasher.create(
+                pinnedStrength.isEmpty() ? null : Integer.valueOf(pinnedStrength),
+                Long.parseLong(dbConnection.getProperty("password.targetHashMs", "250")),
+                Integer.parseInt(dbConnection.getProperty("password.minStrength", "10")),
+                Integer.parseInt(dbConnection.getProperty("password.threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(dbConnection.getProperty("password.queueCapacity", "64")));
+        this.verifiedLogins = new VerifiedLoginCache(
+                Long.parseLong(dbConnection.getProperty("password.verifiedLoginTtlMs", "600000")),
+                Integer.parseInt(dbConnection.getProperty("password.verifiedLoginMaxEntries", "10000")));
         initializeStateHandlers();
     }
 
@@ -70,16 +90,21 @@ public class StateHandler {
             }
         });
 
-        stateHandlers.put(UserState.CREATE_PROFILE_PASSWORD, (userId, input) -> {
-            try {
-                handlePassword(userId, input);
-                bot.sendMsg(String.valueOf(userId), "Введите ваш никнейм:");
-                userStates.put(userId, UserState.ENTER_NICKNAME);
-            } catch (SQLException e) {
-                bot.sendMsg(String.valueOf(userId), "Ошибка при создании профиля. Попробуйте позже.");
-                e.printStackTrace();
-            }
-        });
+        stateHandlers.put(UserState.CREATE_PROFILE_PASSWORD, (userId, input) ->
+                awaitPassword(userId, passwordHasher.encode(input), (encodedPassword, error) -> {
+                    if (error != null) {
+                        replyHashingFailed(userId, error);
+                        return;
+                    }
+                    try {
+                        handlePassword(userId, encodedPassword);
+                        bot.sendMsg(String.valueOf(userId), "Введите ваш никнейм:");
+                        userStates.put(userId, UserState.ENTER_NICKNAME);
+                    } catch (SQLException e) {
+                        bot.sendMsg(String.valueOf(userId), "Ошибка при создании профиля. Попробуйте позже.");
+                        e.printStackTrace();
+                    }
+                }));
 
         stateHandlers.put(UserState.ENTER_NICKNAME, (userId, input) -> {
             try {
@@ -171,16 +196,21 @@ public class StateHandler {
             }
         });
 
-        stateHandlers.put(UserState.EDIT_PROFILE_PASSWORD, (userId, input) -> {
-            try {
-                userProfileManager.updateUserPassword(userId, passwordEncoder.encode(input));
-                bot.sendMsg(String.valueOf(userId), "Пароль обновлен.");
-                userStates.remove(userId); // Удаляем состояние пользователя после изменения поля
-            } catch (SQLException e) {
-                bot.sendMsg(String.valueOf(userId), "Ошибка при обновлении пароля. Попробуйте позже.");
-                e.printStackTrace();
-            }
-        });
+        stateHandlers.put(UserState.EDIT_PROFILE_PASSWORD, (userId, input) ->
+                awaitPassword(userId, passwordHasher.encode(input), (encodedPassword, error) -> {
+                    if (error != null) {
+                        replyHashingFailed(userId, error);
+                        return;
+                    }
+                    try {
+                        userProfileManager.updateUserPassword(userId, encodedPassword);
+                        bot.sendMsg(String.valueOf(userId), "Пароль обновлен.");
+                        userStates.remove(userId); // Удаляем состояние пользователя после изменения поля
+                    } catch (SQLException e) {
+                        bot.sendMsg(String.valueOf(userId), "Ошибка при обновлении пароля. Попробуйте позже.");
+                        e.printStackTrace();
+                    }
+                }));
 
         stateHandlers.put(UserState.EDIT_PROFILE_NICKNAME, (userId, input) -> {
             try {
@@ -260,6 +290,7 @@ public class StateHandler {
                 userProfileManager.createUserProfile(telegramChatId, profile.getLogin(), profile.getPassword(), profile.getNickname(), profile.getAge(), profile.getHeight(), profile.getWeight(), telegramChatId);
                 sessionManager.createSession(telegramChatId, telegramChatId);
                 userStates.remove(telegramChatId);
+                userProfileManager.removeUserProfile(telegramChatId);
             } catch (SQLException e) {
                 bot.sendMsg(String.valueOf(telegramChatId), "Ошибка при сохранении профиля. Попробуйте позже.");
                 LoggerUtil.logError(telegramChatId, "Ошибка при сохранении профиля: " + e.getMessage());
@@ -280,33 +311,187 @@ public class StateHandler {
         return userStates.get(userId);
     }
 
+    public UserStateStore getUserStateStore() {
+        return userStates;
+    }
+
     private void handleLogin(long userId, String input) throws SQLException {
         UserProfile profile = userProfileManager.getOrCreateUserProfile(userId);
         profile.setLogin(input);
         userProfileManager.updateUserProfile(profile);
     }
 
-    private void handlePassword(long userId, String input) throws SQLException {
+    private void handlePassword(long userId, String encodedPassword) throws SQLException {
         UserProfile profile = userProfileManager.getOrCreateUserProfile(userId);
-        profile.setPassword(passwordEncoder.encode(input));
+        profile.setPassword(encodedPassword);
         userProfileManager.updateUserProfile(profile);
     }
 
+    // Пароль при входе только проверяется; проверка идет в пуле хеширования, продолжение - снова в полосе чата.
+    // Недавно подтвержденная пара логин/пароль из того же чата BCrypt не запускает.
     private void handleLoginPassword(long telegramChatId, String input) throws SQLException {
         UserProfile profile = userProfileManager.getOrCreateUserProfile(telegramChatId);
-        profile.setPassword(passwordEncoder.encode(input));
+        String login = profile.getLogin();
+        UserProfile stored = findCredentials(login);
+        if (stored == null) {
+            rejectLogin(telegramChatId);
+            return;
+        }
+        if (verifiedLogins.isVerified(telegramChatId, login, input, stored.getPassword())) {
+            completeLogin(telegramChatId, stored.getUserId());
+            return;
+        }
 
-        long userId = validateLogin(profile.getLogin(), input);
-        if (userId != -1) {
+        awaitPassword(telegramChatId, passwordHasher.matches(input, stored.getPassword()), (matches, error) -> {
+            if (error != null) {
+                replyHashingFailed(telegramChatId, error);
+                return;
+            }
+            if (!matches) {
+                rejectLogin(telegramChatId);
+                return;
+            }
+            verifiedLogins.recordVerified(telegramChatId, login, input, stored.getPassword());
+            completeLogin(telegramChatId, stored.getUserId());
+            upgradeHashIfNeeded(telegramChatId, stored, login, input);
+        });
+    }
+
+    private void completeLogin(long telegramChatId, long userId) {
+        try {
             sessionManager.createSession(userId, telegramChatId);
             bot.sendMsg(String.valueOf(telegramChatId), "Вы успешно вошли в аккаунт!");
             userStates.remove(telegramChatId);
+            userProfileManager.removeUserProfile(telegramChatId);
+        } catch (SQLException e) {
+            bot.sendMsg(String.valueOf(telegramChatId), "Ошибка при входе. Попробуйте позже.");
+            userStates.remove(telegramChatId);
+            e.printStackTrace();
+        }
+    }
+
+    // Пароль известен только в момент входа - тогда и перехешируем его по текущей политике (алгоритм, сила).
+    // Делается в фоне: пользователь уже вошел, а неудача просто оставляет старый хеш до следующего входа.
+    private void upgradeHashIfNeeded(long telegramChatId, UserProfile stored, String login, String password) {
+        if (!passwordHasher.needsUpgrade(stored.getPassword())) {
+            return;
+        }
+        passwordHasher.encode(password).whenComplete((encodedPassword, error) -> {
+            if (error != null) {
+                LoggerUtil.logError(telegramChatId, "Хеш пароля не обновлен: " + error.getMessage());
+                return;
+            }
+            boolean queued = continueInChat(telegramChatId, () -> {
+                try {
+                    userProfileManager.updateUserPassword(stored.getUserId(), encodedPassword);
+                    verifiedLogins.recordVerified(telegramChatId, login, password, encodedPassword);
+                    LoggerUtil.logInfo(telegramChatId, "Хеш пароля обновлен до текущей политики");
+                } catch (SQLException e) {
+                    LoggerUtil.logError(telegramChatId, "Хеш пароля не обновлен: " + e.getMessage());
+                }
+            });
+            if (!queued) {
+                LoggerUtil.logError(telegramChatId, "Хеш пароля не обновлен: очередь обработки переполнена");
+            }
+        });
+    }
+
+    private void rejectLogin(long telegramChatId) {
+        bot.sendMsg(String.valueOf(telegramChatId), "Ошибка логина или пароля. Попробуйте снова.");
+        userStates.put(telegramChatId, UserState.LOGIN_LOGIN);
+    }
+
+    // Состояние не меняется: пользователь может просто отправить пароль еще раз
+    private void replyHashingFailed(long userId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            bot.sendMsg(String.valueOf(userId), "Сервер перегружен. Отправьте пароль еще раз через минуту.");
+            LoggerUtil.logError(userId, "Проверка пароля отклонена: " + passwordHasher.getStats());
         } else {
-            bot.sendMsg(String.valueOf(telegramChatId), "Ошибка логина или пароля. Попробуйте снова.");
-            userStates.put(telegramChatId, UserState.LOGIN_LOGIN);
+            bot.sendMsg(String.valueOf(userId), "Ошибка при обработке пароля. Попробуйте позже.");
+            LoggerUtil.logError(userId, "Ошибка при обработке пароля: " + cause.getMessage());
+        }
+    }
+
+    // Хеширование идет в отдельном пуле, а продолжение - снова в полосе чата. До его выполнения следующие
+    // обновления чата откладываются (deferWhilePasswordPending) и затем выполняются по порядку.
+    private <T> void awaitPassword(long chatId, CompletableFuture<T> hashing, BiConsumer<T, Throwable> continuation) {
+        synchronized (pendingPasswords) {
+            pendingPasswords.putIfAbsent(chatId, new ArrayList<>());
+        }
+        hashing.whenComplete((result, error) -> {
+            boolean queued = continueInChat(chatId, () -> {
+                try {
+                    continuation.accept(result, error);
+                } finally {
+                    runDeferred(chatId);
+                }
+            });
+            if (!queued) {
+                abandonPending(chatId);
+            }
+        });
+    }
+
+    // true, если обновление отложено до окончания проверки пароля этого чата
+    public boolean deferWhilePasswordPending(long chatId, Runnable update) {
+        synchronized (pendingPasswords) {
+            List<Runnable> deferred = pendingPasswords.get(chatId);
+            if (deferred == null) {
+                return false;
+            }
+            deferred.add(update);
+            return true;
         }
     }
 
+    // Вызывается в полосе чата. Отложенное обновление может снова начать проверку пароля - тогда остальные
+    // отложенные встанут в очередь уже за ней, порядок сохраняется
+    private void runDeferred(long chatId) {
+        List<Runnable> deferred;
+        synchronized (pendingPasswords) {
+            deferred = pendingPasswords.remove(chatId);
+        }
+        if (deferred == null) {
+            return;
+        }
+        for (Runnable update : deferred) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                LoggerUtil.logError(chatId, "Ошибка при обработке отложенного обновления: " + e.getMessage());
+            }
+        }
+    }
+
+    // Полоса чата переполнена: продолжение не выполнить, не нарушив порядок. Состояние не менялось,
+    // поэтому пользователь просто отправляет пароль еще раз; отложенные обновления теряются, как и при
+    // переполнении очереди на входе
+    private void abandonPending(long chatId) {
+        List<Runnable> deferred;
+        synchronized (pendingPasswords) {
+            deferred = pendingPasswords.remove(chatId);
+        }
+        int lost = deferred != null ? deferred.size() : 0;
+        bot.sendMsg(String.valueOf(chatId), "Сервер перегружен. Отправьте пароль еще раз через минуту.");
+        LoggerUtil.logError(chatId, "Продолжение после проверки пароля отклонено, потеряно отложенных обновлений: " + lost);
+    }
+
+    // Без ожидания места в очереди: поток пула хеширования не блокируется, а выполнять продолжение
+    // прямо в нем нельзя - оно шло бы параллельно с полосой чата
+    private boolean continueInChat(long chatId, Runnable continuation) {
+        UpdateDispatcher dispatcher = bot.getUpdateDispatcher();
+        return dispatcher != null && dispatcher.offer(chatId, continuation);
+    }
+
+    public PasswordHasher getPasswordHasher() {
+        return passwordHasher;
+    }
+
+    public VerifiedLoginCache getVerifiedLoginCache() {
+        return verifiedLogins;
+    }
+
     private void handleNickname(long userId, String input) throws SQLException {
         UserProfile profile = userProfileManager.getOrCreateUserProfile(userId);
         profile.setNickname(input);
@@ -331,22 +516,13 @@ public class StateHandler {
         userProfileManager.updateUserProfile(profile);
     }
 
-    private long validateLogin(String login, String password) throws SQLException {
+    private UserProfile findCredentials(String login) throws SQLException {
         String query = "SELECT user_id, password FROM user_profiles WHERE login = ?";
-        dbConnection.connect();
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setString(1, login);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                long userId = resultSet.getLong("user_id");
-                String storedPassword = resultSet.getString("password");
-                if (passwordEncoder.matches(password, storedPassword)) { // Проверяем пароль
-                    return userId;
-                }
-            }
-        } finally {
-            dbConnection.disconnect();
-        }
-        return -1;
+        return dbConnection.queryFirst(query, resultSet -> {
+            UserProfile profile = new UserProfile();
+            profile.setUserId(resultSet.getLong("user_id"));
+            profile.setPassword(resultSet.getString("password"));
+            return profile;
+        }, null, login);
     }
 }
@@ -1,5 +1,7 @@
 package org.example.bot;
 
+import org.example.recipes.LocalRecipeIndex;
+import org.example.recipes.RecipePrefetcher;
 import org.example.recipes.RecipesCommand;
 import org.example.recipes.SpoonacularAPI;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
@@ -12,13 +14,14 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.api.methods.ParseMode;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
-import java.util.Arrays;
+import java.util.EnumSet;
 
 import java.sql.SQLException;
 
@@ -26,14 +29,29 @@ public class TelegramBot extends TelegramLongPollingBot {
 
     private String botUsername;
     private String botToken;
+    private UpdateDispatcher updateDispatcher;
+    private OutboundMessageQueue outboundQueue;
+
+    private static final String UNKNOWN_COMMAND = "/unknown";
+
+    private static final EnumSet<AuthRequirement> PUBLIC = EnumSet.noneOf(AuthRequirement.class);
+    private static final EnumSet<AuthRequirement> AUTHENTICATED = EnumSet.of(AuthRequirement.SESSION, AuthRequirement.PROFILE);
 
     private final Map<String, BiConsumer<String, StringBuilder>> commandMap = new HashMap<>();
+    private final Map<String, EnumSet<AuthRequirement>> commandRequirements = new HashMap<>();
+    // Маршруты инлайн-кнопок: префиксное дерево строится один раз при запуске
+    private final CallbackRouter callbackRouter = new CallbackRouter();
     private final StringBuilder helpText = new StringBuilder();
 
+    // config.properties читается один раз; поле объявлено раньше остальных, которым нужны настройки
+    private final Properties config = loadProperties();
     private DatabaseManager databaseManager = new DatabaseManager(this);
+    private final SpoonacularAPI spoonacularAPI = new SpoonacularAPI(config.getProperty("apiToken"));
     private final RecipesCommand recipesCommand = new RecipesCommand(
-            new SpoonacularAPI(getApiToken()),
-            databaseManager
+            spoonacularAPI,
+            databaseManager,
+            createRecipePrefetcher(config),
+            createLocalRecipeIndex(config, spoonacularAPI)
     );
 
     protected static String getApiToken() {
@@ -48,36 +66,69 @@ public class TelegramBot extends TelegramLongPollingBot {
         return apiToken;
     }
 
-    private final List<String> commandsRequiringAuth = Arrays.asList(
-            "/viewprofile",
-            "/deleteprofile",
-            "/viewcourses",
-            "/selectcourse",
-            "/viewworkouts",
-            "/viewexercises",
-            "/logout",
-            "/editprofile"
-    );
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+        try (FileInputStream fis = new FileInputStream("config.properties")) {
+            properties.load(fis);
+        } catch (IOException e) {
+            LoggerUtil.logError(0, "Ошибка при загрузке конфигурации: " + e.getMessage()); // Передаем 0, т.к. userId неизвестен
+        }
+        return properties;
+    }
+
+    // Включается явно: recipes.prefetch.topK > 0 загружает в фоне детали первых рецептов после поиска,
+    // тратя на каждый поиск до topK запросов Spoonacular и квоту перевода
+    private static RecipePrefetcher createRecipePrefetcher(Properties properties) {
+        return new RecipePrefetcher(
+                Integer.parseInt(properties.getProperty("recipes.prefetch.topK", "0")),
+                Integer.parseInt(properties.getProperty("recipes.prefetch.threads", "2")),
+                Integer.parseInt(properties.getProperty("recipes.prefetch.queueCapacity", "50")));
+    }
+
+    // Локальный каталог отвечает на поиск, если нашлось не меньше recipes.local.minMatches рецептов со всеми ингредиентами
+    private static LocalRecipeIndex createLocalRecipeIndex(Properties properties, SpoonacularAPI api) {
+        LocalRecipeIndex index = new LocalRecipeIndex(
+                Paths.get(properties.getProperty("recipes.local.storeFile", "recipe_index.dat")),
+                Integer.parseInt(properties.getProperty("recipes.local.minMatches", "5")),
+                Integer.parseInt(properties.getProperty("recipes.local.maxResults", "10")));
+        String importFile = properties.getProperty("recipes.local.importFile");
+        index.loadInBackground(api.getCache(), importFile != null ? Paths.get(importFile) : null);
+        return index;
+    }
 
     public TelegramBot() {
-        loadConfig();
+        applyConfig(config);
         registerDefaultCommands();
+        registerCallbackRoutes();
 
     }
 
-    private void loadConfig() {
-        Properties properties = new Properties();
-        try (InputStream input = new FileInputStream("config.properties")) {
-            properties.load(input);
-            this.botToken = properties.getProperty("bot.token");
-            this.botUsername = properties.getProperty("bot.username");
-        } catch (IOException e) {
-            LoggerUtil.logError(0, "Ошибка при загрузке конфигурации: " + e.getMessage()); // Передаем 0, т.к. userId неизвестен
-        }
+    private void applyConfig(Properties properties) {
+        this.botToken = properties.getProperty("bot.token");
+        this.botUsername = properties.getProperty("bot.username");
+        this.updateDispatcher = new UpdateDispatcher(
+                Integer.parseInt(properties.getProperty("dispatcher.lanes", "16")),
+                Integer.parseInt(properties.getProperty("dispatcher.queueCapacity", "100")),
+                Integer.parseInt(properties.getProperty("dispatcher.maxInFlight", "256")),
+                Long.parseLong(properties.getProperty("dispatcher.submitTimeoutMs", "5000")));
+        // Лимиты Telegram: около 30 сообщений в секунду всего и около одного в секунду в один чат
+        this.outboundQueue = new OutboundMessageQueue(
+                this::sendAsync,
+                Double.parseDouble(properties.getProperty("outbound.globalPerSecond", "30")),
+                Double.parseDouble(properties.getProperty("outbound.chatPerSecond", "1")),
+                Integer.parseInt(properties.getProperty("outbound.chatBurst", "3")),
+                Integer.parseInt(properties.getProperty("outbound.capacity", "10000")),
+                Integer.parseInt(properties.getProperty("outbound.maxRetries", "3")));
     }
 
     public void registerCommand(String command, String description, BiConsumer<String, StringBuilder> action) {
+        registerCommand(command, description, PUBLIC, action);
+    }
+
+    public void registerCommand(String command, String description, EnumSet<AuthRequirement> requirements,
+                                BiConsumer<String, StringBuilder> action) {
         commandMap.put(command, action);
+        commandRequirements.put(command, requirements.clone());
         helpText.append(command).append(" - ").append(description).append("\n");
     }
 
@@ -109,21 +160,17 @@ public class TelegramBot extends TelegramLongPollingBot {
             LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь начал создание профиля.");
         });
 
-        registerCommand("/viewprofile", "Посмотреть данные профиля", (chatId, builder) -> {
+        registerCommand("/viewprofile", "Посмотреть данные профиля", AUTHENTICATED, (chatId, builder) -> {
             try {
-                if (databaseManager.isUserLoggedIn(Long.parseLong(chatId))) {
-                    builder.append(databaseManager.getUserProfileAsString(Long.parseLong(chatId)));
-                    LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь просмотрел свой профиль.");
-                } else {
-                    builder.append("Ошибка. Зарегистрируйтесь или войдите в аккаунт.");
-                }
+                builder.append(databaseManager.getUserProfileAsString(Long.parseLong(chatId)));
+                LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь просмотрел свой профиль.");
             } catch (SQLException e) {
                 builder.append("Ошибка при получении профиля. Попробуйте позже.");
                 LoggerUtil.logError(Long.parseLong(chatId), "Ошибка при получении профиля: " + e.getMessage());
             }
         });
 
-        registerCommand("/deleteprofile", "Удалить профиль", (chatId, builder) -> {
+        registerCommand("/deleteprofile", "Удалить профиль", AUTHENTICATED, (chatId, builder) -> {
             try {
                 builder.append(databaseManager.deleteUserProfileAsString(Long.parseLong(chatId)));
                 LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь удалил свой профиль.");
@@ -133,7 +180,7 @@ public class TelegramBot extends TelegramLongPollingBot {
             }
         });
 
-        registerCommand("/viewcourses", "Посмотреть программы тренировок", (chatId, builder) -> {
+        registerCommand("/viewcourses", "Посмотреть программы тренировок", AUTHENTICATED, (chatId, builder) -> {
             try {
                 builder.append(databaseManager.getCoursesAsString());
                 LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь просмотрел программы тренировок.");
@@ -143,10 +190,9 @@ public class TelegramBot extends TelegramLongPollingBot {
             }
         });
 
-        registerCommand("/selectcourse", "Выбрать программу тренировок", (chatId, builder) -> {
+        registerCommand("/selectcourse", "Выбрать программу тренировок", AUTHENTICATED, (chatId, builder) -> {
             try {
-                List<Course> courses = databaseManager.getCourses();
-                InlineKeyboardMarkup keyboardMarkup = InlineKeyboardManager.getCourseSelectionKeyboard(courses);
+                InlineKeyboardMarkup keyboardMarkup = databaseManager.getCourseSelectionKeyboard();
                 sendMsgWithInlineKeyboard(chatId, "Пожалуйста, выберите программу тренировок:", keyboardMarkup);
                 databaseManager.setUserState(Long.parseLong(chatId), UserState.SELECT_COURSE); // Устанавливаем состояние пользователя
                 LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь начал выбор программы тренировок.");
@@ -156,7 +202,7 @@ public class TelegramBot extends TelegramLongPollingBot {
             }
         });
 
-        registerCommand("/viewworkouts", "Посмотреть тренировки в выбранной программе", (chatId, builder) -> {
+        registerCommand("/viewworkouts", "Посмотреть тренировки в выбранной программе", AUTHENTICATED, (chatId, builder) -> {
             try {
                 String workouts = databaseManager.getWorkoutsAsString(Long.parseLong(chatId));
                 builder.append(workouts);
@@ -167,7 +213,7 @@ public class TelegramBot extends TelegramLongPollingBot {
             }
         });
 
-        registerCommand("/viewexercises", "Посмотреть упражнения в тренировке", (chatId, builder) -> {
+        registerCommand("/viewexercises", "Посмотреть упражнения в тренировке", AUTHENTICATED, (chatId, builder) -> {
             try {
                 List<Workout> workouts = databaseManager.getWorkoutsWithCompletionStatus(Long.parseLong(chatId));
                 InlineKeyboardMarkup keyboardMarkup = InlineKeyboardManager.getWorkoutSelectionKeyboard(workouts);
@@ -185,7 +231,7 @@ public class TelegramBot extends TelegramLongPollingBot {
             LoggerUtil.logInfo(Long.parseLong(chatId), "Пользователь начал процесс входа.");
         });
 
-        registerCommand("/logout", "Выйти из профиля", (chatId, builder) -> {
+        registerCommand("/logout", "Выйти из профиля", AUTHENTICATED, (chatId, builder) -> {
             try {
                 long telegramChatId = Long.parseLong(chatId);
                 databaseManager.logoutUser(telegramChatId);
@@ -197,19 +243,10 @@ public class TelegramBot extends TelegramLongPollingBot {
             }
         });
 
-        registerCommand("/editprofile", "Редактировать профиль", (chatId, builder) -> {
-            try {
-                if (databaseManager.isUserLoggedIn(Long.parseLong(chatId))) {
-                    builder.append("Выберите, что хотите изменить:");
-                    sendMsgWithInlineKeyboard(chatId, builder.toString(), InlineKeyboardManager.getEditProfileKeyboard());
-                    databaseManager.setUserState(Long.parseLong(chatId), UserState.EDIT_PROFILE_LOGIN);
-                } else {
-                    builder.append("Ошибка. Зарегистрируйтесь или войдите в аккаунт.");
-                }
-            } catch (SQLException e) {
-                builder.append("Ошибка при получении профиля. Попробуйте позже.");
-                LoggerUtil.logError(Long.parseLong(chatId), "Ошибка при получении профиля: " + e.getMessage());
-            }
+        registerCommand("/editprofile", "Редактировать профиль", AUTHENTICATED, (chatId, builder) -> {
+            builder.append("Выберите, что хотите изменить:");
+            sendMsgWithInlineKeyboard(chatId, builder.toString(), InlineKeyboardManager.getEditProfileKeyboard());
+            databaseManager.setUserState(Long.parseLong(chatId), UserState.EDIT_PROFILE_LOGIN);
         });
 
         registerCommand("/recipes", "Подобрать рецепты по ингредиентам", (chatId, builder) -> {
@@ -239,8 +276,54 @@ public class TelegramBot extends TelegramLongPollingBot {
         return botToken;
     }
 
+    // Обновления одного чата обрабатываются строго по порядку, разных чатов - параллельно
     @Override
     public void onUpdateReceived(Update update) {
+        long chatId = getChatId(update);
+        // при заполненной очереди dispatch ждет места, а не отбрасывает обновление
+        if (!updateDispatcher.dispatch(chatId, () -> handleUpdate(update))) {
+            LoggerUtil.logError(chatId, "Обновление не принято: бот останавливается. " + updateDispatcher.getStats());
+        }
+    }
+
+    // Прием обновления из webhook без ожидания места в очереди; false - Telegram повторит доставку позже
+    public boolean offerUpdate(Update update) {
+        long chatId = getChatId(update);
+        if (!updateDispatcher.offer(chatId, () -> handleUpdate(update))) {
+            LoggerUtil.logError(chatId, "Обновление из webhook отклонено: очередь обработки переполнена. " + updateDispatcher.getStats());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onClosing() {
+        updateDispatcher.close();
+        outboundQueue.close();
+        recipesCommand.getPrefetcher().close();
+        recipesCommand.getLocalIndex().close();
+        super.onClosing();
+    }
+
+    private static long getChatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return 0;
+    }
+
+    public UpdateDispatcher getUpdateDispatcher() {
+        return updateDispatcher;
+    }
+
+    protected void handleUpdate(Update update) {
+        // пока пароль чата проверяется, его обновления ждут продолжения проверки, чтобы не обработаться в старом состоянии
+        if (databaseManager.deferWhilePasswordPending(getChatId(update), () -> handleUpdate(update))) {
+            return;
+        }
         if (update.hasMessage() && update.getMessage().hasText()) {
             Message message = update.getMessage();
             String text = message.getText();
@@ -260,149 +343,151 @@ public class TelegramBot extends TelegramLongPollingBot {
                 return;
             }
 
-            String command = KeyboardMarkup.mapButtonTextToCommand(text);
+            // пользователь ушел от выбора рецепта - фоновая загрузка больше не нужна
+            recipesCommand.cancelPrefetch(userId);
 
-            LoggerUtil.logInfo(userId, "Пользователь отправил команду: " + command);
+            // текст кнопки меню совпадает с командой, поэтому достаточно одного поиска
+            BiConsumer<String, StringBuilder> action = commandMap.get(text);
+            String command = action != null ? text : UNKNOWN_COMMAND;
 
-            try {
-                boolean isLoggedIn = databaseManager.isUserLoggedIn(userId);
-                boolean isProfileExists = databaseManager.isProfileExists(userId);
+            LoggerUtil.logInfo(userId, "Пользователь отправил команду: " + command);
 
-                if (!isProfileExists || !isLoggedIn) {
-                    if (commandsRequiringAuth.contains(command)) {
+            // статус авторизации нужен только закрытым командам и запрашивается не больше одного раза за обновление
+            EnumSet<AuthRequirement> requirements = action != null ? commandRequirements.get(text) : PUBLIC;
+            if (!requirements.isEmpty()) {
+                try {
+                    if (!AuthRequirement.allSatisfied(requirements, databaseManager.getAuthStatus(userId))) {
                         sendMsg(String.valueOf(userId), "Ошибка. Зарегистрируйтесь или войдите в аккаунт.");
-                    } else {
-                        handleCommand(userId, command, text);
+                        return;
                     }
-                } else {
-                    handleCommand(userId, command, text);
+                } catch (SQLException e) {
+                    sendMsg(String.valueOf(userId), "Ошибка при выполнении команды. Попробуйте позже.");
+                    LoggerUtil.logError(userId, "Ошибка при выполнении команды: " + e.getMessage());
+                    return;
                 }
-            } catch (SQLException e) {
-                sendMsg(String.valueOf(userId), "Ошибка при выполнении команды. Попробуйте позже.");
-                LoggerUtil.logError(userId, "Ошибка при выполнении команды: " + e.getMessage());
             }
+            handleCommand(userId, state, command, action, text);
         } else if (update.hasCallbackQuery()) {
             CallbackQuery callbackQuery = update.getCallbackQuery();
             String callbackData = callbackQuery.getData();
             long userId = callbackQuery.getMessage().getChatId();
 
-            if (callbackData.startsWith("edit_")) {
-                Map<String, UserState> editStateMap = Map.of(
-                        "edit_login", UserState.EDIT_PROFILE_LOGIN,
-                        "edit_password", UserState.EDIT_PROFILE_PASSWORD,
-                        "edit_nickname", UserState.EDIT_PROFILE_NICKNAME,
-                        "edit_age", UserState.EDIT_PROFILE_AGE,
-                        "edit_height", UserState.EDIT_PROFILE_HEIGHT,
-                        "edit_weight", UserState.EDIT_PROFILE_WEIGHT
-                );
-
-                UserState state = editStateMap.get(callbackData);
-                if (state != null) {
-                    databaseManager.setUserState(userId, state);
-                    String message = getMessageForState(state);
-                    sendMsg(String.valueOf(userId), message);
-                }
-            } else if (databaseManager.getUserState(userId) == UserState.SELECT_COURSE) {
-                try {
-                    int courseId = Integer.parseInt(callbackData);
-                    databaseManager.updateUserCourse(userId, courseId);
-                    databaseManager.resetCompletedWorkouts(userId); // Сброс выполненных тренировок при смене программы
-                    sendMsg(String.valueOf(userId), "Курс успешно выбран!");
-                    databaseManager.removeUserState(userId); // Удаляем состояние пользователя
-                    LoggerUtil.logInfo(userId, "Пользователь выбрал курс: " + courseId);
-                } catch (NumberFormatException | SQLException e) {
-                    sendMsg(String.valueOf(userId), "Ошибка при выборе курса. Попробуйте позже.");
-                    LoggerUtil.logError(userId, "Ошибка при выборе курса: " + e.getMessage());
-                }
-            } else if (callbackData.startsWith("workout_")) {
-                try {
-                    int workoutId = Integer.parseInt(callbackData.split("_")[1]);
-                    StringBuilder exercises = new StringBuilder();
-                    exercises.append(databaseManager.getExercisesAsString(workoutId));
-                    InlineKeyboardMarkup keyboardMarkup = InlineKeyboardManager.getCompleteWorkoutKeyboard(workoutId);
-                    sendMsgWithInlineKeyboard(String.valueOf(userId), exercises.toString(), keyboardMarkup);
-                    LoggerUtil.logInfo(userId, "Пользователь просмотрел упражнения в тренировке: " + workoutId);
-                } catch (NumberFormatException | SQLException e) {
-                    sendMsg(String.valueOf(userId), "Ошибка при получении упражнений. Попробуйте позже.");
-                    LoggerUtil.logError(userId, "Ошибка при получении упражнений: " + e.getMessage());
-                }
-            } else if (callbackData.startsWith("recipe_")) {
-                try {
-                    // Извлекаем ID рецепта из callbackData
-                    int recipeId = Integer.parseInt(callbackData.split("_")[1]);
-
-                    // Получаем детали рецепта
-                    String recipeDetails = recipesCommand.getRecipeDetails(recipeId);
+            if (!callbackData.startsWith("recipe_")) {
+                recipesCommand.cancelPrefetch(userId);
+            }
 
-                    // Отправляем пользователю детали рецепта
-                    sendMsg(String.valueOf(userId), recipeDetails);
-                    LoggerUtil.logInfo(userId, "Пользователь запросил рецепт: " + recipeId);
-                } catch (Exception e) {
-                    sendMsg(String.valueOf(userId), "Ошибка при получении рецепта. Попробуйте позже.");
-                    LoggerUtil.logError(userId, "Ошибка при получении рецепта: " + e.getMessage());
-                }
-            } else if (callbackData.startsWith("complete_")) {
-                try {
-                    int workoutId = Integer.parseInt(callbackData.split("_")[1]);
-                    databaseManager.markWorkoutAsCompleted(userId, workoutId);
-                    sendMsg(String.valueOf(userId), "Тренировка отмечена как выполненная!");
-                    LoggerUtil.logInfo(userId, "Пользователь отметил тренировку как выполненную: " + workoutId);
-                } catch (NumberFormatException | SQLException e) {
-                    sendMsg(String.valueOf(userId), "Ошибка при отметке тренировки. Попробуйте позже.");
-                    LoggerUtil.logError(userId, "Ошибка при отметке тренировки: " + e.getMessage());
-                }
+            if (!callbackRouter.route(userId, callbackData)) {
+                LoggerUtil.logInfo(userId, "Неизвестные данные кнопки: " + callbackData);
             }
         }
     }
 
-    private void handleCommand(long userId, String command, String text) {
-        UserState userState = databaseManager.getUserState(userId);
+    // Маршруты инлайн-кнопок; идентификаторы приходят в обработчик уже числом
+    private void registerCallbackRoutes() {
+        callbackRouter
+                .on("edit_login", userId -> startProfileEdit(userId, UserState.EDIT_PROFILE_LOGIN))
+                .on("edit_password", userId -> startProfileEdit(userId, UserState.EDIT_PROFILE_PASSWORD))
+                .on("edit_nickname", userId -> startProfileEdit(userId, UserState.EDIT_PROFILE_NICKNAME))
+                .on("edit_age", userId -> startProfileEdit(userId, UserState.EDIT_PROFILE_AGE))
+                .on("edit_height", userId -> startProfileEdit(userId, UserState.EDIT_PROFILE_HEIGHT))
+                .on("edit_weight", userId -> startProfileEdit(userId, UserState.EDIT_PROFILE_WEIGHT))
+                .onId("", this::chooseCourseFromButton)
+                .onId("workout_", this::showWorkoutExercises)
+                .onId("recipe_", this::showRecipe)
+                .onId("complete_", this::completeWorkout);
+    }
+
+    private void startProfileEdit(long userId, UserState state) {
+        databaseManager.setUserState(userId, state);
+        sendMsg(String.valueOf(userId), getMessageForState(state));
+    }
+
+    // Кнопки курсов несут только номер курса и действуют, пока пользователь выбирает курс
+    private void chooseCourseFromButton(long userId, int courseId) {
+        if (databaseManager.getUserState(userId) != UserState.SELECT_COURSE) {
+            return;
+        }
+        try {
+            databaseManager.updateUserCourse(userId, courseId);
+            databaseManager.resetCompletedWorkouts(userId); // Сброс выполненных тренировок при смене программы
+            sendMsg(String.valueOf(userId), "Курс успешно выбран!");
+            databaseManager.removeUserState(userId); // Удаляем состояние пользователя
+            LoggerUtil.logInfo(userId, "Пользователь выбрал курс: " + courseId);
+        } catch (SQLException e) {
+            sendMsg(String.valueOf(userId), "Ошибка при выборе курса. Попробуйте позже.");
+            LoggerUtil.logError(userId, "Ошибка при выборе курса: " + e.getMessage());
+        }
+    }
+
+    private void showWorkoutExercises(long userId, int workoutId) {
+        try {
+            String exercises = databaseManager.getExercisesAsString(workoutId);
+            InlineKeyboardMarkup keyboardMarkup = databaseManager.getCompleteWorkoutKeyboard(workoutId);
+            sendMsgWithInlineKeyboard(String.valueOf(userId), exercises, keyboardMarkup);
+            LoggerUtil.logInfo(userId, "Пользователь просмотрел упражнения в тренировке: " + workoutId);
+        } catch (SQLException e) {
+            sendMsg(String.valueOf(userId), "Ошибка при получении упражнений. Попробуйте позже.");
+            LoggerUtil.logError(userId, "Ошибка при получении упражнений: " + e.getMessage());
+        }
+    }
+
+    private void showRecipe(long userId, int recipeId) {
+        try {
+            String recipeDetails = recipesCommand.getRecipeDetails(userId, recipeId);
+            sendMsg(String.valueOf(userId), recipeDetails);
+            LoggerUtil.logInfo(userId, "Пользователь запросил рецепт: " + recipeId);
+        } catch (Exception e) {
+            sendMsg(String.valueOf(userId), "Ошибка при получении рецепта. Попробуйте позже.");
+            LoggerUtil.logError(userId, "Ошибка при получении рецепта: " + e.getMessage());
+        }
+    }
 
+    private void completeWorkout(long userId, int workoutId) {
+        try {
+            databaseManager.markWorkoutAsCompleted(userId, workoutId);
+            sendMsg(String.valueOf(userId), "Тренировка отмечена как выполненная!");
+            LoggerUtil.logInfo(userId, "Пользователь отметил тренировку как выполненную: " + workoutId);
+        } catch (SQLException e) {
+            sendMsg(String.valueOf(userId), "Ошибка при отметке тренировки. Попробуйте позже.");
+            LoggerUtil.logError(userId, "Ошибка при отметке тренировки: " + e.getMessage());
+        }
+    }
+
+    private void handleCommand(long userId, UserState userState, String command, BiConsumer<String, StringBuilder> action,
+                               String text) {
         if (userState != null) {
             databaseManager.handleProfileCreationOrLogin(userId, text);
         } else {
-            try {
-                boolean isLoggedIn = databaseManager.isUserLoggedIn(userId);
-                if (!isLoggedIn) {
-                    if (commandsRequiringAuth.contains(command)) {
-                        sendMsg(String.valueOf(userId), "Ошибка. Зарегистрируйтесь или войдите в аккаунт.");
-                    } else {
-                        BiConsumer<String, StringBuilder> action = commandMap.getOrDefault(command, (id, builder) -> {
-                            builder.append("Неизвестная команда. Используйте /help для списка команд.");
-                        });
-
-                        StringBuilder responseBuilder = new StringBuilder();
-                        action.accept(String.valueOf(userId), responseBuilder);
-                        sendMsg(String.valueOf(userId), responseBuilder.toString());
-                        LoggerUtil.logInfo(userId, "Пользователь выполнил команду: " + command);
-                    }
-                } else {
-                    BiConsumer<String, StringBuilder> action = commandMap.getOrDefault(command, (id, builder) -> {
-                        builder.append("Неизвестная команда. Используйте /help для списка команд.");
-                    });
-
-                    StringBuilder responseBuilder = new StringBuilder();
-                    action.accept(String.valueOf(userId), responseBuilder);
-                    sendMsg(String.valueOf(userId), responseBuilder.toString());
-                    LoggerUtil.logInfo(userId, "Пользователь выполнил команду: " + command);
-                }
-            } catch (SQLException e) {
-                sendMsg(String.valueOf(userId), "Ошибка при выполнении команды. Попробуйте позже.");
-                LoggerUtil.logError(userId, "Ошибка при выполнении команды: " + e.getMessage());
+            StringBuilder responseBuilder = new StringBuilder();
+            if (action != null) {
+                action.accept(String.valueOf(userId), responseBuilder);
+            } else {
+                responseBuilder.append("Неизвестная команда. Используйте /help для списка команд.");
             }
+            sendMsg(String.valueOf(userId), responseBuilder.toString());
+            LoggerUtil.logInfo(userId, "Пользователь выполнил команду: " + command);
         }
     }
 
     public void sendMsg(String chatId, String text) {
+        sendMsg(chatId, text, OutboundMessageQueue.Priority.INTERACTIVE);
+    }
+
+    // Рассылки уступают очередь ответам пользователям
+    public void sendBulkMsg(String chatId, String text) {
+        sendMsg(chatId, text, OutboundMessageQueue.Priority.BULK);
+    }
+
+    private void sendMsg(String chatId, String text, OutboundMessageQueue.Priority priority) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId);
         message.setText(text);
         message.setParseMode(ParseMode.HTML);
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            LoggerUtil.logError(Long.parseLong(chatId), "Ошибка при отправке сообщения: " + e.getMessage());
-        }
+        outboundQueue.submit(Long.parseLong(chatId), message, priority).whenComplete((sent, e) -> {
+            if (e != null) {
+                LoggerUtil.logError(Long.parseLong(chatId), "Ошибка при отправке сообщения: " + e.getMessage());
+            }
+        });
     }
 
     public void sendMsgWithInlineKeyboard(String chatId, String text, InlineKeyboardMarkup keyboardMarkup) {
@@ -411,13 +496,26 @@ public class TelegramBot extends TelegramLongPollingBot {
         message.setText(text);
         message.setParseMode(ParseMode.HTML);
         message.setReplyMarkup(keyboardMarkup);
+        outboundQueue.submit(Long.parseLong(chatId), message, OutboundMessageQueue.Priority.INTERACTIVE).whenComplete((sent, e) -> {
+            if (e != null) {
+                LoggerUtil.logError(Long.parseLong(chatId), "Ошибка при отправке сообщения с инлайн-клавиатурой: " + e.getMessage());
+            }
+        });
+    }
+
+    // executeAsync проверяет сообщение до отправки и бросает исключение синхронно - приводим к единому виду
+    private CompletableFuture<Message> sendAsync(SendMessage message) {
         try {
-            execute(message);
+            return executeAsync(message);
         } catch (TelegramApiException e) {
-            LoggerUtil.logError(Long.parseLong(chatId), "Ошибка при отправке сообщения с инлайн-клавиатурой: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
+    public OutboundMessageQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
     public Map<String, BiConsumer<String, StringBuilder>> getCommandMap() {
         return commandMap;
     }
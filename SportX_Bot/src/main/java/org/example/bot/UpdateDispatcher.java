@@ -0,0 +1,182 @@
+package org.example.bot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Распределяет обновления по последовательным "полосам" по chatId: внутри одного чата порядок сохраняется,
+// разные чаты обрабатываются параллельно.
+public class UpdateDispatcher implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(UpdateDispatcher.class.getName());
+
+    private final Lane[] lanes;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long submitTimeoutMillis;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private volatile boolean closed;
+
+    public UpdateDispatcher(int laneCount, int queueCapacity, int maxInFlight, long submitTimeoutMillis) {
+        if (laneCount <= 0 || queueCapacity <= 0 || maxInFlight <= 0 || submitTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Параметры диспетчера должны быть положительными");
+        }
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+        }
+    }
+
+    // Для long polling: смещение уже сдвинуто за это обновление, и повторно Telegram его не пришлет, поэтому
+    // при переполнении поток опроса ждет места в очереди, а не теряет обновление. Каждые submitTimeoutMillis
+    // ожидания пишется предупреждение. false - только после close() или прерывания потока.
+    public boolean dispatch(long chatId, Runnable task) {
+        long waitStarted = System.nanoTime();
+        try {
+            while (!closed) {
+                if (enqueue(chatId, task, submitTimeoutMillis)) {
+                    return true;
+                }
+                stalls.incrementAndGet();
+                logger.warning("Очередь обработки заполнена, прием обновлений ждет "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStarted) + " мс: " + getStats());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    // Ставит задачу в очередь, ожидая место не дольше timeoutMillis суммарно; false - задача отклонена
+    public boolean tryDispatch(long chatId, Runnable task, long timeoutMillis) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (enqueue(chatId, task, timeoutMillis)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    // То же без ожидания: для webhook, где отклоненное обновление Telegram доставит повторно
+    public boolean offer(long chatId, Runnable task) {
+        return tryDispatch(chatId, task, 0);
+    }
+
+    // Оба ожидания - разрешения и места в полосе - укладываются в один общий срок
+    private boolean enqueue(long chatId, Runnable task, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (!inFlight.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        boolean queued = false;
+        try {
+            queued = laneFor(chatId).queue.offer(task, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return queued;
+        } finally {
+            if (!queued) {
+                inFlight.release();
+            }
+        }
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public int getQueueDepth(int lane) {
+        return lanes[lane].queue.size();
+    }
+
+    public long getProcessedCount(int lane) {
+        return lanes[lane].processed.get();
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    // Сколько раз прием обновлений простоял submitTimeoutMillis в ожидании места
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    public String getStats() {
+        StringBuilder stats = new StringBuilder();
+        stats.append("inFlight=").append(getInFlight()).append('/').append(maxInFlight)
+                .append(", rejected=").append(getRejectedCount()).append(", stalls=").append(getStallCount())
+                .append(", queues=[");
+        for (int i = 0; i < lanes.length; i++) {
+            if (i > 0) {
+                stats.append(", ");
+            }
+            stats.append(getQueueDepth(i));
+        }
+        return stats.append(']').toString();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+    }
+
+    private Lane laneFor(long chatId) {
+        int hash = Long.hashCode(chatId);
+        hash ^= (hash >>> 16);
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    private final class Lane implements Runnable {
+        private final BlockingQueue<Runnable> queue;
+        private final AtomicLong processed = new AtomicLong();
+        private final Thread thread;
+
+        private Lane(int index, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, "update-lane-" + index);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    logger.log(Level.SEVERE, "Ошибка при обработке обновления", e);
+                } finally {
+                    processed.incrementAndGet();
+                    inFlight.release();
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,13 @@
 package org.example.bot;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserProfileManager {
 
     private final DatabaseConnection dbConnection;
-    private final Map<Long, UserProfile> userProfiles = new HashMap<>();
+    private final Map<Long, UserProfile> userProfiles = new ConcurrentHashMap<>();
 
     public UserProfileManager(DatabaseConnection dbConnection) {
         this.dbConnection = dbConnection;
@@ -17,17 +15,7 @@ public class UserProfileManager {
 
     public boolean isProfileExists(long userId) throws SQLException {
         String query = "SELECT COUNT(*) FROM user_profiles WHERE user_id = ?";
-        dbConnection.connect();
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setLong(1, userId);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getInt(1) > 0;
-            }
-        } finally {
-            dbConnection.disconnect();
-        }
-        return false;
+        return dbConnection.queryFirst(query, resultSet -> resultSet.getInt(1) > 0, false, userId);
     }
 
     public void addUserProfile(long userId, UserProfile profile) {
@@ -38,39 +26,20 @@ public class UserProfileManager {
         return userProfiles.get(userId);
     }
 
+    // Черновик профиля нужен только на время сценария создания профиля или входа
+    public void removeUserProfile(long userId) {
+        userProfiles.remove(userId);
+    }
+
     public void updateUserProfile(UserProfile profile) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET login = ?, password = ?, nickname = ?, age = ?, height = ?, weight = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setString(1, profile.getLogin());
-            statement.setString(2, profile.getPassword());
-            statement.setString(3, profile.getNickname());
-            statement.setInt(4, profile.getAge());
-            statement.setInt(5, profile.getHeight());
-            statement.setInt(6, profile.getWeight());
-            statement.setLong(7, profile.getUserId());
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, profile.getLogin(), profile.getPassword(), profile.getNickname(),
+                profile.getAge(), profile.getHeight(), profile.getWeight(), profile.getUserId());
     }
 
     public void createUserProfile(long userId, String login, String password, String nickname, Integer age, Integer height, Integer weight, long telegramChatId) throws SQLException {
-        dbConnection.connect();
         String query = "INSERT INTO user_profiles (user_id, login, password, nickname, age, height, weight, telegram_chat_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setLong(1, userId);
-            statement.setString(2, login);
-            statement.setString(3, password);
-            statement.setString(4, nickname);
-            statement.setInt(5, age);
-            statement.setInt(6, height);
-            statement.setInt(7, weight);
-            statement.setLong(8, telegramChatId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, userId, login, password, nickname, age, height, weight, telegramChatId);
     }
 
     public void deleteUserProfile(long userId) throws SQLException {
@@ -79,45 +48,28 @@ public class UserProfileManager {
     }
 
     public String deleteUserProfileAsString(long userId) throws SQLException {
-        String result;
-
-        dbConnection.connect();
-        if (isProfileExists(userId)) {
-            dbConnection.disconnect();
-
-            dbConnection.connect();
-            deleteUserProfile(userId);
-            result = "Ваш профиль успешно удален.";
-        } else {
-            result = "Профиль не найден.";
-        }
-        dbConnection.disconnect();
-
-        return result;
+        return dbConnection.inTransaction(connection -> {
+            if (isProfileExists(userId)) {
+                deleteUserProfile(userId);
+                return "Ваш профиль успешно удален.";
+            }
+            return "Профиль не найден.";
+        });
     }
 
     public String getUserProfileAsString(long telegramChatId) throws SQLException {
-        dbConnection.connect();
         String query = "SELECT up.login, up.password, up.nickname, up.age, up.height, up.weight " +
                 "FROM user_profiles up " +
                 "JOIN user_sessions us ON up.user_id = us.user_id " +
                 "WHERE us.telegram_chat_id = ?";
-        ResultSet resultSet = dbConnection.select(query, telegramChatId);
-        StringBuilder profile = new StringBuilder();
-
-        if (resultSet.next()) {
-            profile.append(String.format("<b>Ваш профиль:</b>\n<b>Логин:</b> <i>%s</i>\n<b>Никнейм:</b> <i>%s</i>\n<b>Возраст:</b> <i>%d</i>\n<b>Рост:</b> <i>%d</i>\n<b>Вес:</b> <i>%d</i>",
-                    resultSet.getString("login"),
-                    resultSet.getString("nickname"),
-                    resultSet.getInt("age"),
-                    resultSet.getInt("height"),
-                    resultSet.getInt("weight")));
-        } else {
-            profile.append("Профиль не найден.");
-        }
-
-        dbConnection.disconnect();
-        return profile.toString();
+        return dbConnection.queryFirst(query, resultSet ->
+                String.format("<b>Ваш профиль:</b>\n<b>Логин:</b> <i>%s</i>\n<b>Никнейм:</b> <i>%s</i>\n<b>Возраст:</b> <i>%d</i>\n<b>Рост:</b> <i>%d</i>\n<b>Вес:</b> <i>%d</i>",
+                        resultSet.getString("login"),
+                        resultSet.getString("nickname"),
+                        resultSet.getInt("age"),
+                        resultSet.getInt("height"),
+                        resultSet.getInt("weight")),
+                "Профиль не найден.", telegramChatId);
     }
 
     public UserProfile getOrCreateUserProfile(long userId) {
@@ -125,86 +77,37 @@ public class UserProfileManager {
     }
 
     public void updateUserCourse(long userId, int courseId) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET course_id = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setInt(1, courseId);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, courseId, userId);
     }
 
     public void updateUserLogin(long userId, String login) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET login = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setString(1, login);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, login, userId);
     }
 
     public void updateUserPassword(long userId, String password) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET password = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setString(1, password);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, password, userId);
     }
 
     public void updateUserNickname(long userId, String nickname) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET nickname = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setString(1, nickname);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, nickname, userId);
     }
 
     public void updateUserAge(long userId, int age) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET age = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setInt(1, age);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, age, userId);
     }
 
     public void updateUserHeight(long userId, int height) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET height = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setInt(1, height);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, height, userId);
     }
 
     public void updateUserWeight(long userId, int weight) throws SQLException {
-        dbConnection.connect();
         String query = "UPDATE user_profiles SET weight = ? WHERE user_id = ?";
-        try (PreparedStatement statement = dbConnection.connection.prepareStatement(query)) {
-            statement.setInt(1, weight);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } finally {
-            dbConnection.disconnect();
-        }
+        dbConnection.update(query, weight, userId);
     }
 }
@@ -0,0 +1,299 @@
+package org.example.bot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+// Потокобезопасное хранилище состояний пользователей с вытеснением по времени простоя и по размеру.
+// Ключи хранятся как long, состояние - как порядковый номер enum в byte, без узлов HashMap и boxed Long.
+public class UserStateStore {
+
+    private static final UserState[] STATES = UserState.values();
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlMillis;
+    private final int maxSegmentSize;
+    private final LongConsumer evictionListener;
+    private final LongSupplier clock;
+    private final long baseTime;
+    private final long sweepIntervalMillis;
+    private final AtomicLong lastSweep;
+    private final AtomicLong expiredEvictions = new AtomicLong();
+    private final AtomicLong sizeEvictions = new AtomicLong();
+
+    public UserStateStore(long ttlMillis, int maxSize, LongConsumer evictionListener) {
+        this(ttlMillis, maxSize, evictionListener, System::currentTimeMillis);
+    }
+
+    UserStateStore(long ttlMillis, int maxSize, LongConsumer evictionListener, LongSupplier clock) {
+        if (ttlMillis <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("TTL и максимальный размер должны быть положительными");
+        }
+        this.ttlMillis = ttlMillis;
+        this.maxSegmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        this.evictionListener = evictionListener != null ? evictionListener : userId -> { };
+        this.clock = clock;
+        this.baseTime = clock.getAsLong();
+        this.sweepIntervalMillis = Math.max(1000, ttlMillis / 4);
+        this.lastSweep = new AtomicLong(baseTime);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public void put(long userId, UserState state) {
+        if (state == null) {
+            remove(userId);
+            return;
+        }
+        int now = now();
+        segmentFor(userId).put(userId, (byte) (state.ordinal() + 1), now);
+        maybeSweep();
+    }
+
+    public UserState get(long userId) {
+        int now = now();
+        byte value = segmentFor(userId).get(userId, now);
+        maybeSweep();
+        return value == 0 ? null : STATES[value - 1];
+    }
+
+    public UserState remove(long userId) {
+        byte value = segmentFor(userId).remove(userId);
+        return value == 0 ? null : STATES[value - 1];
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    // Удаляет все записи с истекшим временем простоя; возвращает количество удаленных
+    public int evictExpired() {
+        int now = now();
+        int evicted = 0;
+        for (Segment segment : segments) {
+            evicted += segment.evictExpired(now);
+        }
+        return evicted;
+    }
+
+    public long getExpiredEvictionCount() {
+        return expiredEvictions.get();
+    }
+
+    public long getSizeEvictionCount() {
+        return sizeEvictions.get();
+    }
+
+    public long getEvictionCount() {
+        return expiredEvictions.get() + sizeEvictions.get();
+    }
+
+    // Оценка занимаемой памяти: массивы ключей, состояний и времени доступа каждого сегмента
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    public String getStats() {
+        return String.format("UserStateStore[entries=%d, expiredEvictions=%d, sizeEvictions=%d, memory=%dB]",
+                size(), getExpiredEvictionCount(), getSizeEvictionCount(), estimateMemoryBytes());
+    }
+
+    // Время в секундах от создания хранилища: 4 байта на запись вместо 8
+    private int now() {
+        return (int) ((clock.getAsLong() - baseTime) / 1000);
+    }
+
+    private boolean isExpired(int accessedAt, int now) {
+        return (now - accessedAt) * 1000L >= ttlMillis;
+    }
+
+    private void maybeSweep() {
+        long time = clock.getAsLong();
+        long last = lastSweep.get();
+        if (time - last >= sweepIntervalMillis && lastSweep.compareAndSet(last, time)) {
+            evictExpired();
+        }
+    }
+
+    private Segment segmentFor(long userId) {
+        return segments[(int) (mix(userId) >>> 60)];
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // Открытая адресация с линейным пробированием; пустой слот - state == 0
+    private final class Segment {
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private byte[] states = new byte[INITIAL_SEGMENT_CAPACITY];
+        private int[] accessedAt = new int[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized void put(long key, byte state, int now) {
+            int index = find(key);
+            if (index >= 0) {
+                states[index] = state;
+                accessedAt[index] = now;
+                return;
+            }
+            if (size >= maxSegmentSize) {
+                evictExpired(now);
+                if (size >= maxSegmentSize) {
+                    evictOldest();
+                }
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            insert(key, state, now);
+            size++;
+        }
+
+        synchronized byte get(long key, int now) {
+            int index = find(key);
+            if (index < 0) {
+                return 0;
+            }
+            if (isExpired(accessedAt[index], now)) {
+                deleteAt(index);
+                expiredEvictions.incrementAndGet();
+                evictionListener.accept(key);
+                return 0;
+            }
+            accessedAt[index] = now;
+            return states[index];
+        }
+
+        synchronized byte remove(long key) {
+            int index = find(key);
+            if (index < 0) {
+                return 0;
+            }
+            byte state = states[index];
+            deleteAt(index);
+            return state;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long estimateMemoryBytes() {
+            // заголовки трех массивов по 16 байт + 8 + 1 + 4 байта на слот
+            return 48L + (long) keys.length * (8 + 1 + 4);
+        }
+
+        synchronized int evictExpired(int now) {
+            int evicted = 0;
+            int index = 0;
+            while (index < keys.length) {
+                if (states[index] != 0 && isExpired(accessedAt[index], now)) {
+                    long key = keys[index];
+                    deleteAt(index);
+                    evicted++;
+                    expiredEvictions.incrementAndGet();
+                    evictionListener.accept(key);
+                    // на место удаленного мог сдвинуться другой элемент - проверяем этот же слот еще раз
+                } else {
+                    index++;
+                }
+            }
+            return evicted;
+        }
+
+        private void evictOldest() {
+            int oldest = -1;
+            for (int i = 0; i < keys.length; i++) {
+                if (states[i] != 0 && (oldest < 0 || accessedAt[i] < accessedAt[oldest])) {
+                    oldest = i;
+                }
+            }
+            if (oldest >= 0) {
+                long key = keys[oldest];
+                deleteAt(oldest);
+                sizeEvictions.incrementAndGet();
+                evictionListener.accept(key);
+            }
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (states[index] != 0) {
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(long key, byte state, int now) {
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (states[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            states[index] = state;
+            accessedAt[index] = now;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            byte[] oldStates = states;
+            int[] oldAccessedAt = accessedAt;
+            keys = new long[capacity];
+            states = new byte[capacity];
+            accessedAt = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStates[i] != 0) {
+                    insert(oldKeys[i], oldStates[i], oldAccessedAt[i]);
+                }
+            }
+        }
+
+        // Удаление со сдвигом назад, чтобы не оставлять "надгробий" в цепочке пробирования
+        private void deleteAt(int hole) {
+            int mask = keys.length - 1;
+            int index = hole;
+            while (true) {
+                index = (index + 1) & mask;
+                if (states[index] == 0) {
+                    break;
+                }
+                int ideal = (int) mix(keys[index]) & mask;
+                boolean canMove = hole <= index
+                        ? (ideal <= hole || ideal > index)
+                        : (ideal <= hole && ideal > index);
+                if (canMove) {
+                    keys[hole] = keys[index];
+                    states[hole] = states[index];
+                    accessedAt[hole] = accessedAt[index];
+                    hole = index;
+                }
+            }
+            keys[hole] = 0;
+            states[hole] = 0;
+            accessedAt[hole] = 0;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.bot;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Недавние успешные проверки пароля: повторный вход из того же чата с тем же логином и паролем
+// не запускает BCrypt заново. Ключ - HMAC от (чат, логин, пароль) на случайном ключе процесса,
+// поэтому ни пароль, ни пригодный для перебора хеш в памяти не хранятся. Запись действительна, только
+// пока в базе лежит тот же хеш, с которым она проверялась: смена пароля сразу делает ее бесполезной.
+public class VerifiedLoginCache {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final SecretKeySpec macKey;
+    private final Map<String, Verified> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public VerifiedLoginCache(long ttlMillis, int maxEntries) {
+        this(ttlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    VerifiedLoginCache(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.macKey = new SecretKeySpec(key, MAC_ALGORITHM);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+                if (size() > VerifiedLoginCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isVerified(long chatId, String login, String password, String storedHash) {
+        if (ttlMillis <= 0 || storedHash == null) {
+            return false;
+        }
+        String key = key(chatId, login, password);
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Verified verified = entries.get(key);
+            if (verified != null && verified.expiresAt > now && verified.storedHash.equals(storedHash)) {
+                hits.incrementAndGet();
+                return true;
+            }
+            if (verified != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    public void recordVerified(long chatId, String login, String password, String storedHash) {
+        if (ttlMillis <= 0 || storedHash == null) {
+            return;
+        }
+        String key = key(chatId, login, password);
+        synchronized (entries) {
+            entries.put(key, new Verified(storedHash, clock.getAsLong() + ttlMillis));
+        }
+    }
+
+    private String key(long chatId, String login, String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            // длины полей входят в сообщение, чтобы разные пары логин/пароль не склеивались в одну строку
+            String message = chatId + ":" + login.length() + ":" + login + ":" + password;
+            return Base64.getEncoder().encodeToString(mac.doFinal(message.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 недоступен", e);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public String getStats() {
+        return String.format("VerifiedLoginCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+                size(), maxEntries, getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    private static final class Verified {
+        private final String storedHash;
+        private final long expiresAt;
+
+        private Verified(String storedHash, long expiresAt) {
+            this.storedHash = storedHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
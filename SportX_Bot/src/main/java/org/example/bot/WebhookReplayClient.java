@@ -0,0 +1,117 @@
+package org.example.bot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Локальная проверка webhook без Telegram: отправляет сохраненные обновления на адрес бота так же,
+// как это делает Telegram, с секретным токеном в заголовке.
+// Запуск: java -cp ... org.example.bot.WebhookReplayClient http://localhost:8443/telegram <secret> updates.json
+// Файл - JSON-массив обновлений или по одному обновлению в строке.
+public class WebhookReplayClient {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final OkHttpClient client;
+    private final String url;
+    private final String secretToken;
+
+    public WebhookReplayClient(OkHttpClient client, String url, String secretToken) {
+        this.client = client;
+        this.url = url;
+        this.secretToken = secretToken;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Использование: WebhookReplayClient <url> <secretToken> <файл с обновлениями>");
+            return;
+        }
+        OkHttpClient client = new OkHttpClient();
+        try {
+            Result result = new WebhookReplayClient(client, args[0], args[1]).replay(readUpdates(Paths.get(args[2])));
+            System.out.println(result);
+        } finally {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+    }
+
+    public static List<String> readUpdates(Path file) throws IOException {
+        String content = Files.readString(file, StandardCharsets.UTF_8).trim();
+        List<String> updates = new ArrayList<>();
+        if (content.startsWith("[")) {
+            for (JsonNode update : MAPPER.readTree(content)) {
+                updates.add(update.toString());
+            }
+        } else {
+            for (String line : content.split("\\R")) {
+                if (!line.isBlank()) {
+                    updates.add(line.trim());
+                }
+            }
+        }
+        return updates;
+    }
+
+    // Обновления отправляются по одному и по порядку, как их доставляет Telegram
+    public Result replay(List<String> updates) throws IOException {
+        Result result = new Result();
+        for (String update : updates) {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .header(WebhookServer.SECRET_HEADER, secretToken)
+                    .post(RequestBody.create(update, JSON))
+                    .build();
+            long start = System.nanoTime();
+            try (Response response = client.newCall(request).execute()) {
+                result.record(response.code(), System.nanoTime() - start);
+            }
+        }
+        return result;
+    }
+
+    public static class Result {
+        private final Map<Integer, Integer> statusCounts = new TreeMap<>();
+        private int sent;
+        private long totalNanos;
+        private long maxNanos;
+
+        private void record(int status, long nanos) {
+            statusCounts.merge(status, 1, Integer::sum);
+            sent++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public int getSent() {
+            return sent;
+        }
+
+        public int getCount(int status) {
+            return statusCounts.getOrDefault(status, 0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Отправлено %d, ответы %s, задержка avg=%.1fms max=%.1fms",
+                    sent, statusCounts, sent == 0 ? 0 : totalNanos / 1_000_000.0 / sent, maxNanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.bot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Прием обновлений через webhook вместо long polling. Соединения обслуживает встроенный в JDK HTTP-сервер
+// на NIO-селекторе, запросы разбирает небольшой пул: проверка секретного токена, разбор JSON и постановка
+// в очередь UpdateDispatcher без ожидания, после чего Telegram сразу получает ответ. Без места в очереди
+// возвращается 503, и Telegram сам повторит доставку. Экземпляр на бот один: состояние чатов хранится
+// в памяти процесса, поэтому несколько экземпляров за балансировщиком не поддерживаются.
+public class WebhookServer implements AutoCloseable {
+
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private static final Logger logger = Logger.getLogger(WebhookServer.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final String path;
+    private final byte[] secretToken;
+    private final Predicate<Update> sink;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong unauthorized = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong overloaded = new AtomicLong();
+
+    public WebhookServer(InetSocketAddress address, String path, String secretToken, int threads, int queueCapacity,
+                         Predicate<Update> sink) throws IOException {
+        // Telegram допускает в токене только A-Z, a-z, 0-9, _ и - длиной до 256 символов
+        if (secretToken == null || !secretToken.matches("[A-Za-z0-9_-]{1,256}")) {
+            throw new IllegalArgumentException("webhook.secretToken не задан или содержит недопустимые символы");
+        }
+        this.path = path;
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+        this.sink = sink;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // при заполненной очереди запрос разбирает поток селектора: это короткая работа без ожидания
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "webhook-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(path, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public static WebhookServer fromProperties(Properties properties, Predicate<Update> sink) throws IOException {
+        return new WebhookServer(
+                new InetSocketAddress(properties.getProperty("webhook.host", "0.0.0.0"),
+                        Integer.parseInt(properties.getProperty("webhook.port", "8443"))),
+                properties.getProperty("webhook.path", "/telegram"),
+                properties.getProperty("webhook.secretToken"),
+                Integer.parseInt(properties.getProperty("webhook.threads", "4")),
+                Integer.parseInt(properties.getProperty("webhook.queueCapacity", "1000")),
+                sink);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Webhook принимает обновления на " + getAddress() + path);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod()) || !path.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404);
+                return;
+            }
+            if (!hasValidSecret(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                unauthorized.incrementAndGet();
+                respond(exchange, 401);
+                return;
+            }
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] json = body.readNBytes(MAX_BODY_BYTES + 1);
+                if (json.length > MAX_BODY_BYTES) {
+                    malformed.incrementAndGet();
+                    respond(exchange, 413);
+                    return;
+                }
+                update = MAPPER.readValue(json, Update.class);
+            } catch (IOException e) {
+                malformed.incrementAndGet();
+                logger.log(Level.FINE, "Некорректное тело webhook-запроса", e);
+                respond(exchange, 400);
+                return;
+            }
+            // тело "null" разбирается без ошибки, но обновлением не является; 503 заставил бы Telegram повторять его
+            if (update == null) {
+                malformed.incrementAndGet();
+                respond(exchange, 400);
+                return;
+            }
+            if (!sink.test(update)) {
+                overloaded.incrementAndGet();
+                respond(exchange, 503);
+                return;
+            }
+            accepted.incrementAndGet();
+            respond(exchange, 200);
+        }
+    }
+
+    // Сравнение за постоянное время, чтобы токен нельзя было подобрать по времени ответа
+    private boolean hasValidSecret(String header) {
+        return header != null && MessageDigest.isEqual(secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getUnauthorizedCount() {
+        return unauthorized.get();
+    }
+
+    public long getMalformedCount() {
+        return malformed.get();
+    }
+
+    public long getOverloadedCount() {
+        return overloaded.get();
+    }
+
+    public String getStats() {
+        return String.format("WebhookServer[accepted=%d, unauthorized=%d, malformed=%d, overloaded=%d, queued=%d]",
+                getAcceptedCount(), getUnauthorizedCount(), getMalformedCount(), getOverloadedCount(),
+                executor.getQueue().size());
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+}
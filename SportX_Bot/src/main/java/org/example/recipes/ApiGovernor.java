@@ -0,0 +1,179 @@
+package org.example.recipes;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+// Регулятор исходящих вызовов одного внешнего API: автомат-предохранитель (closed -> open -> half-open)
+// и учет дневной квоты. Пока предохранитель разомкнут или квота исчерпана, вызовы отклоняются сразу,
+// не дожидаясь таймаутов. В состоянии half-open к сервису пропускается один пробный вызов.
+public class ApiGovernor {
+
+    private static final Logger logger = Logger.getLogger(ApiGovernor.class.getName());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public interface ApiCall<T> {
+        T call() throws ExternalApiException;
+    }
+
+    private final String service;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private double quotaLeft = Double.NaN;
+    private long quotaResetAt;
+
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong circuitOpenings = new AtomicLong();
+
+    public ApiGovernor(String service, int failureThreshold, long openMillis) {
+        this(service, failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    public ApiGovernor(String service, int failureThreshold, long openMillis, LongSupplier clock) {
+        this.service = service;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    public <T> T execute(ApiCall<T> call) throws ExternalApiException {
+        boolean probe = acquire();
+        try {
+            T result = call.call();
+            onSuccess(probe);
+            return result;
+        } catch (ExternalApiException e) {
+            onFailure(probe, e);
+            throw e;
+        } catch (RuntimeException e) {
+            onFailure(probe, null);
+            throw e;
+        }
+    }
+
+    // Пропускает вызов или бросает исключение; true - вызов является пробным
+    private synchronized boolean acquire() throws ExternalApiException {
+        long now = clock.getAsLong();
+        if (quotaResetAt > 0) {
+            if (now < quotaResetAt) {
+                rejected.incrementAndGet();
+                throw new ExternalApiException(service, ExternalApiException.Reason.QUOTA_EXHAUSTED, "дневная квота исчерпана");
+            }
+            quotaResetAt = 0;
+            quotaLeft = Double.NaN;
+        }
+        if (state == State.OPEN && now - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+            rejected.incrementAndGet();
+            throw new ExternalApiException(service, ExternalApiException.Reason.CIRCUIT_OPEN, "сервис временно недоступен");
+        }
+        if (state == State.HALF_OPEN) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onSuccess(boolean probe) {
+        successes.incrementAndGet();
+        consecutiveFailures = 0;
+        if (probe) {
+            probeInFlight = false;
+            state = State.CLOSED;
+            logger.info(service + ": сервис снова доступен");
+        }
+    }
+
+    // Ошибки клиента (4xx кроме 429) говорят о запросе, а не о состоянии сервиса, и предохранитель не трогают
+    private synchronized void onFailure(boolean probe, ExternalApiException error) {
+        if (probe) {
+            probeInFlight = false;
+        }
+        boolean serviceFailure = error == null
+                || error.getReason() == ExternalApiException.Reason.UNAVAILABLE
+                || (error.getReason() == ExternalApiException.Reason.HTTP_ERROR
+                    && (error.getStatusCode() >= 500 || error.getStatusCode() == 429));
+        if (!serviceFailure) {
+            if (probe && error.getReason() != ExternalApiException.Reason.QUOTA_EXHAUSTED) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+            }
+            return;
+        }
+        failures.incrementAndGet();
+        consecutiveFailures++;
+        if (probe || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                circuitOpenings.incrementAndGet();
+                logger.warning(service + ": предохранитель разомкнут после " + consecutiveFailures + " ошибок подряд");
+            }
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    // Остаток квоты из заголовков ответа; при нуле вызовы отклоняются до начала следующих суток UTC
+    public synchronized void updateQuota(double left) {
+        quotaLeft = left;
+        if (left <= 0) {
+            exhaustQuota();
+        }
+    }
+
+    public synchronized void exhaustQuota() {
+        quotaLeft = 0;
+        LocalDate today = Instant.ofEpochMilli(clock.getAsLong()).atZone(ZoneOffset.UTC).toLocalDate();
+        quotaResetAt = today.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        logger.warning(service + ": дневная квота исчерпана");
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized double getQuotaLeft() {
+        return quotaLeft;
+    }
+
+    public long getSuccessCount() {
+        return successes.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getCircuitOpenCount() {
+        return circuitOpenings.get();
+    }
+
+    public String getStats() {
+        return String.format("ApiGovernor[%s: state=%s, quotaLeft=%s, successes=%d, failures=%d, rejected=%d, openings=%d]",
+                service, getState(), getQuotaLeft(), getSuccessCount(), getFailureCount(), getRejectedCount(), getCircuitOpenCount());
+    }
+}
@@ -0,0 +1,267 @@
+package org.example.recipes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Постоянное хранилище "ключ - строка" в одном файле только для дозаписи.
+// Запись: [время записи: long][длина ключа: int][ключ][длина значения: int][значение].
+// В памяти держится только индекс ключ -> смещение последней записи; при открытии файл сканируется,
+// при росте файла сверх лимита живые записи переписываются в новый файл. Устаревшие записи остаются в файле
+// до такого сжатия: read() отдает их вместе со временем записи, например для ответа при недоступном API.
+public class DiskCacheStore implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(DiskCacheStore.class.getName());
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final long ttlMillis;
+    private final long maxFileBytes;
+    private final Map<String, Entry> index = new HashMap<>();
+    private FileChannel channel;
+    private long liveBytes;
+
+    public DiskCacheStore(Path path, long ttlMillis, long maxFileBytes) throws IOException {
+        this.path = path;
+        this.ttlMillis = ttlMillis;
+        this.maxFileBytes = maxFileBytes;
+        this.channel = open(path);
+        loadIndex();
+        // при открытии убираются только перезаписанные версии: устаревшие записи еще пригодятся после перезапуска
+        if (channel.size() > liveBytes * 2 + 4096) {
+            compact(false);
+        }
+    }
+
+    // Значение, если оно не старше ttl
+    public synchronized String get(String key) {
+        Stored stored = read(key);
+        return stored != null && !isExpired(stored.writtenAt) ? stored.value : null;
+    }
+
+    // Значение вместе со временем записи, в том числе устаревшее
+    public synchronized Stored read(String key) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.valueLength);
+            readFully(buffer, entry.valueOffset);
+            return new Stored(new String(buffer.array(), StandardCharsets.UTF_8), entry.writtenAt);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Не удалось прочитать запись кэша", e);
+            remove(key, entry);
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, String value) {
+        try {
+            append(key, value, System.currentTimeMillis());
+            if (maxFileBytes > 0 && channel.size() > maxFileBytes) {
+                compact(true);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Не удалось записать запись кэша", e);
+        }
+    }
+
+    // Снимок ключей живых записей
+    public synchronized List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            if (!isExpired(entry.getValue().writtenAt)) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long getFileBytes() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Не удалось закрыть файл кэша", e);
+        }
+    }
+
+    private void append(String key, String value, long writtenAt) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + Integer.BYTES + valueBytes.length);
+        record.putLong(writtenAt).putInt(keyBytes.length).put(keyBytes).putInt(valueBytes.length).put(valueBytes).flip();
+        long offset = channel.size();
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        Entry previous = index.put(key, new Entry(writtenAt, offset + record.limit() - valueBytes.length, valueBytes.length, record.limit()));
+        if (previous != null) {
+            liveBytes -= previous.recordLength;
+        }
+        liveBytes += record.limit();
+    }
+
+    private void loadIndex() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, offset);
+            long writtenAt = header.getLong(0);
+            int keyLength = header.getInt(Long.BYTES);
+            long keyOffset = offset + HEADER_BYTES;
+            if (keyLength < 0 || keyOffset + keyLength + Integer.BYTES > size) {
+                break;
+            }
+            ByteBuffer keyBuffer = ByteBuffer.allocate(keyLength);
+            readFully(keyBuffer, keyOffset);
+            length.clear();
+            readFully(length, keyOffset + keyLength);
+            int valueLength = length.getInt(0);
+            long valueOffset = keyOffset + keyLength + Integer.BYTES;
+            if (valueLength < 0 || valueOffset + valueLength > size) {
+                break;
+            }
+            String key = new String(keyBuffer.array(), StandardCharsets.UTF_8);
+            long recordLength = valueOffset + valueLength - offset;
+            Entry previous = index.put(key, new Entry(writtenAt, valueOffset, valueLength, recordLength));
+            if (previous != null) {
+                liveBytes -= previous.recordLength;
+            }
+            liveBytes += recordLength;
+            offset += recordLength;
+        }
+        if (offset < size) {
+            // хвост недописанной записи после аварийного завершения
+            logger.warning("Файл кэша " + path + " обрезан до последней целой записи");
+            channel.truncate(offset);
+        }
+    }
+
+    // Переписывает последние версии записей в новый файл (устаревшие - только при dropExpired = false);
+    // если их слишком много, оставляет самые свежие
+    private void compact(boolean dropExpired) throws IOException {
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(index.entrySet());
+        if (dropExpired) {
+            live.removeIf(entry -> isExpired(entry.getValue().writtenAt));
+        }
+        live.sort((a, b) -> Long.compare(b.getValue().writtenAt, a.getValue().writtenAt));
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Map<String, Entry> newIndex = new HashMap<>();
+        long newLiveBytes = 0;
+        try (FileChannel target = open(temporary)) {
+            target.truncate(0);
+            long limit = maxFileBytes > 0 ? maxFileBytes / 2 : Long.MAX_VALUE;
+            List<Map.Entry<String, Entry>> kept = new ArrayList<>();
+            for (Map.Entry<String, Entry> entry : live) {
+                if (newLiveBytes + entry.getValue().recordLength > limit) {
+                    break;
+                }
+                kept.add(entry);
+                newLiveBytes += entry.getValue().recordLength;
+            }
+            long offset = 0;
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                Entry entry = kept.get(i).getValue();
+                long recordOffset = entry.valueOffset + entry.valueLength - entry.recordLength;
+                ByteBuffer record = ByteBuffer.allocate((int) entry.recordLength);
+                readFully(record, recordOffset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    target.write(record, offset + record.position());
+                }
+                newIndex.put(kept.get(i).getKey(), new Entry(entry.writtenAt,
+                        offset + entry.recordLength - entry.valueLength, entry.valueLength, entry.recordLength));
+                offset += entry.recordLength;
+            }
+            target.force(true);
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(path);
+        index.clear();
+        index.putAll(newIndex);
+        liveBytes = newLiveBytes;
+    }
+
+    private void remove(String key, Entry entry) {
+        index.remove(key);
+        liveBytes -= entry.recordLength;
+    }
+
+    private boolean isExpired(long writtenAt) {
+        return ttlMillis > 0 && System.currentTimeMillis() - writtenAt >= ttlMillis;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла кэша");
+            }
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public static final class Stored {
+        private final String value;
+        private final long writtenAt;
+
+        private Stored(String value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getWrittenAt() {
+            return writtenAt;
+        }
+    }
+
+    private static final class Entry {
+        private final long writtenAt;
+        private final long valueOffset;
+        private final int valueLength;
+        private final long recordLength;
+
+        private Entry(long writtenAt, long valueOffset, int valueLength, long recordLength) {
+            this.writtenAt = writtenAt;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordLength = recordLength;
+        }
+    }
+}
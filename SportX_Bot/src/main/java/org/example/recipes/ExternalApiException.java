@@ -0,0 +1,46 @@
+package org.example.recipes;
+
+// Типизированная ошибка внешнего API вместо строки "Ошибка: API вернул код ..."
+public class ExternalApiException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        CIRCUIT_OPEN,      // сервис недавно падал, вызов отклонен без обращения к нему
+        QUOTA_EXHAUSTED,   // дневная квота исчерпана
+        HTTP_ERROR,        // сервис ответил кодом ошибки
+        UNAVAILABLE        // таймаут или сетевая ошибка
+    }
+
+    private final String service;
+    private final Reason reason;
+    private final int statusCode;
+
+    public ExternalApiException(String service, Reason reason, int statusCode, String message, Throwable cause) {
+        super(service + ": " + message, cause);
+        this.service = service;
+        this.reason = reason;
+        this.statusCode = statusCode;
+    }
+
+    public ExternalApiException(String service, Reason reason, String message) {
+        this(service, reason, 0, message, null);
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    // Отказ без обращения к сервису: ответ можно сразу заменить кэшем или упрощенным результатом
+    public boolean isShed() {
+        return reason == Reason.CIRCUIT_OPEN || reason == Reason.QUOTA_EXHAUSTED;
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.recipes;
+
+import java.util.Arrays;
+
+// Превращает HTML инструкций Spoonacular в текст за один проход без регулярных выражений:
+// списки - в строки с "- ", <br> и абзацы - в переводы строк, остальные теги (в том числе b, i, strong, em, span)
+// удаляются, HTML-сущности декодируются. Попутно запоминаются концы предложений для нарезки текста на части.
+// Результат - простой текст: перед отправкой с ParseMode.HTML его нужно пропустить через escapeHtml.
+public final class HtmlSanitizer {
+
+    private HtmlSanitizer() {
+    }
+
+    public static SanitizedText sanitize(String html) {
+        if (html == null || html.isEmpty()) {
+            return new SanitizedText("", new int[0], 0);
+        }
+        int length = html.length();
+        StringBuilder out = new StringBuilder(length);
+        int[] ends = new int[16];
+        int sentenceCount = 0;
+        boolean afterPunctuation = false;
+
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            int outBefore = out.length();
+            if (c == '<') {
+                int close = html.indexOf('>', i + 1);
+                if (close < 0) {
+                    out.append(c);
+                    i++;
+                } else {
+                    appendTag(html, i + 1, close, out);
+                    i = close + 1;
+                }
+            } else if (c == '&') {
+                i = appendEntity(html, i, out);
+            } else {
+                out.append(c);
+                i++;
+            }
+
+            // граница предложения - знак препинания, за которым идет пробельный символ
+            for (int k = outBefore; k < out.length(); k++) {
+                char emitted = out.charAt(k);
+                if (emitted == '.' || emitted == '!' || emitted == '?') {
+                    afterPunctuation = true;
+                } else if (Character.isWhitespace(emitted) && afterPunctuation) {
+                    if (sentenceCount == ends.length) {
+                        ends = Arrays.copyOf(ends, ends.length * 2);
+                    }
+                    ends[sentenceCount++] = k;
+                    afterPunctuation = false;
+                } else {
+                    afterPunctuation = false;
+                }
+            }
+        }
+
+        if (sentenceCount == 0 || ends[sentenceCount - 1] < out.length()) {
+            if (sentenceCount == ends.length) {
+                ends = Arrays.copyOf(ends, ends.length + 1);
+            }
+            ends[sentenceCount++] = out.length();
+        }
+        return new SanitizedText(out.toString(), ends, sentenceCount);
+    }
+
+    // Содержимое между < и >; имя тега сравнивается на месте, без выделения строки
+    private static void appendTag(String html, int start, int end, StringBuilder out) {
+        boolean closing = start < end && html.charAt(start) == '/';
+        int nameStart = closing ? start + 1 : start;
+        int nameEnd = nameStart;
+        while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (isTag(html, nameStart, nameEnd, "li")) {
+            out.append(closing ? "\n" : "- ");
+        } else if (isTag(html, nameStart, nameEnd, "ol") || isTag(html, nameStart, nameEnd, "ul")) {
+            if (!closing) {
+                out.append('\n');
+            }
+        } else if (isTag(html, nameStart, nameEnd, "br")) {
+            out.append('\n');
+        } else if (isTag(html, nameStart, nameEnd, "p") || isTag(html, nameStart, nameEnd, "div")) {
+            if (closing) {
+                out.append('\n');
+            }
+        }
+    }
+
+    private static boolean isTag(String html, int nameStart, int nameEnd, String name) {
+        return nameEnd - nameStart == name.length() && html.regionMatches(true, nameStart, name, 0, name.length());
+    }
+
+    // Декодирует сущность, начинающуюся с &; возвращает позицию после нее. Неизвестная сущность остается как есть.
+    private static int appendEntity(String html, int start, StringBuilder out) {
+        int semicolon = html.indexOf(';', start + 1);
+        if (semicolon < 0 || semicolon - start > 10) {
+            out.append('&');
+            return start + 1;
+        }
+        int codePoint = -1;
+        if (html.charAt(start + 1) == '#') {
+            boolean hex = semicolon > start + 2 && (html.charAt(start + 2) == 'x' || html.charAt(start + 2) == 'X');
+            try {
+                codePoint = Integer.parseInt(html, hex ? start + 3 : start + 2, semicolon, hex ? 16 : 10);
+            } catch (NumberFormatException e) {
+                codePoint = -1;
+            }
+        } else if (html.startsWith("amp;", start + 1)) {
+            codePoint = '&';
+        } else if (html.startsWith("lt;", start + 1)) {
+            codePoint = '<';
+        } else if (html.startsWith("gt;", start + 1)) {
+            codePoint = '>';
+        } else if (html.startsWith("quot;", start + 1)) {
+            codePoint = '"';
+        } else if (html.startsWith("apos;", start + 1)) {
+            codePoint = '\'';
+        } else if (html.startsWith("nbsp;", start + 1)) {
+            codePoint = ' ';
+        } else if (html.startsWith("deg;", start + 1)) {
+            codePoint = '°';
+        } else if (html.startsWith("frac12;", start + 1)) {
+            codePoint = '½';
+        }
+        if (codePoint < 0 || !Character.isValidCodePoint(codePoint)) {
+            out.append('&');
+            return start + 1;
+        }
+        out.appendCodePoint(codePoint);
+        return semicolon + 1;
+    }
+
+    // Экранирует текст для сообщения с ParseMode.HTML: Telegram отклоняет сообщение целиком,
+    // если в нем встречаются неэкранированные <, > или &
+    public static String escapeHtml(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = c == '&' ? "&amp;" : c == '<' ? "&lt;" : c == '>' ? "&gt;" : null;
+            if (replacement != null) {
+                if (out == null) {
+                    out = new StringBuilder(text.length() + 16).append(text, 0, i);
+                }
+                out.append(replacement);
+            } else if (out != null) {
+                out.append(c);
+            }
+        }
+        return out != null ? out.toString() : text;
+    }
+}
@@ -0,0 +1,383 @@
+package org.example.recipes;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Локальный каталог рецептов с инвертированным индексом "ингредиент -> рецепты".
+// Наполняется ответами /information (из кэша API и по мере просмотра рецептов) и файлом массового импорта.
+// Списки вхождений - отсортированные массивы порядковых номеров рецептов: номера выдаются по возрастанию,
+// поэтому добавление - запись в конец, а пересечение - слияние отсортированных массивов.
+// Поиск отвечает локально, только если рецептов со всеми ингредиентами запроса достаточно, иначе возвращает null.
+public class LocalRecipeIndex implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(LocalRecipeIndex.class.getName());
+    private static final String KEY_PREFIX = "recipe:";
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private final int minFullMatches;
+    private final int maxResults;
+    private final DiskCacheStore store;
+
+    private final Map<Integer, Integer> ordinalsById = new HashMap<>();
+    private final List<IndexedRecipe> recipes = new ArrayList<>();
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    private final AtomicLong localSearches = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    // storePath = null - индекс только в памяти
+    public LocalRecipeIndex(Path storePath, int minFullMatches, int maxResults) {
+        this.minFullMatches = minFullMatches;
+        this.maxResults = maxResults;
+        this.store = storePath != null ? openStore(storePath) : null;
+        if (store != null) {
+            // в порядке идентификаторов, чтобы ранжирование равных рецептов не зависело от порядка в файле
+            List<String> keys = store.keys();
+            keys.removeIf(key -> !key.startsWith(KEY_PREFIX));
+            keys.sort(Comparator.comparingInt(key -> Integer.parseInt(key.substring(KEY_PREFIX.length()))));
+            for (String key : keys) {
+                String value = store.get(key);
+                if (value != null) {
+                    restore(Integer.parseInt(key.substring(KEY_PREFIX.length())), value);
+                }
+            }
+        }
+    }
+
+    private static DiskCacheStore openStore(Path path) {
+        try {
+            return new DiskCacheStore(path, 0, 0);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Не удалось открыть файл локального каталога рецептов " + path, e);
+            return null;
+        }
+    }
+
+    // Ответы /information, уже лежащие в кэше API
+    public int importCachedResponses(ResponseCache cache) {
+        int[] added = {0};
+        cache.forEachStored(KEY_PREFIX, (key, json) -> {
+            if (addFromJson(json)) {
+                added[0]++;
+            }
+        });
+        return added[0];
+    }
+
+    // Наполнение из кэша API и файла импорта в отдельном потоке: до его окончания поиск просто уходит в API
+    public void loadInBackground(ResponseCache cache, Path importFile) {
+        Thread loader = new Thread(() -> {
+            int cached = cache != null ? importCachedResponses(cache) : 0;
+            logger.info("Из кэша API в локальный каталог добавлено рецептов: " + cached);
+            if (importFile != null && Files.exists(importFile)) {
+                try {
+                    importFile(importFile);
+                } catch (IOException | RuntimeException e) {
+                    logger.log(Level.WARNING, "Не удалось импортировать рецепты из " + importFile, e);
+                }
+            }
+        }, "recipe-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Файл массового импорта: JSON-массив рецептов или рецепты подряд (по одному в строке) в формате /information
+    public int importFile(Path file) throws IOException {
+        int added = 0;
+        try (InputStream input = Files.newInputStream(file);
+             JsonParser parser = RecipeParser.JSON_FACTORY.createParser(input)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token == JsonToken.START_OBJECT) {
+                if (add(readRecipe(parser))) {
+                    added++;
+                }
+                token = parser.nextToken();
+            }
+        }
+        logger.info("Из " + file + " импортировано рецептов: " + added);
+        return added;
+    }
+
+    public boolean addFromJson(String json) {
+        try (JsonParser parser = RecipeParser.JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            return add(readRecipe(parser));
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Не удалось разобрать рецепт для локального каталога", e);
+            return false;
+        }
+    }
+
+    // Рецепт без ингредиентов или уже известный рецепт не добавляется
+    public boolean add(int recipeId, String title, List<String> ingredients) {
+        if (recipeId <= 0 || ingredients.isEmpty()) {
+            return false;
+        }
+        synchronized (this) {
+            if (ordinalsById.containsKey(recipeId)) {
+                return false;
+            }
+            index(recipeId, title, ingredients);
+        }
+        if (store != null) {
+            store.put(KEY_PREFIX + recipeId, title + "\n" + String.join("\n", ingredients));
+        }
+        return true;
+    }
+
+    private boolean add(RecipeRecord record) {
+        return record != null && add(record.id, record.title, record.ingredients);
+    }
+
+    private synchronized void restore(int recipeId, String value) {
+        List<String> lines = Arrays.asList(value.split("\n"));
+        if (lines.size() > 1 && !ordinalsById.containsKey(recipeId)) {
+            index(recipeId, lines.get(0), lines.subList(1, lines.size()));
+        }
+    }
+
+    private void index(int recipeId, String title, List<String> ingredients) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String ingredient : ingredients) {
+            terms.addAll(terms(ingredient));
+        }
+        int ordinal = recipes.size();
+        recipes.add(new IndexedRecipe(recipeId, title, ingredients.size()));
+        ordinalsById.put(recipeId, ordinal);
+        for (String term : terms) {
+            postings.computeIfAbsent(term, key -> new PostingList()).add(ordinal);
+        }
+    }
+
+    // Каждый ингредиент запроса - пересечение списков его слов; рецепт получает балл за каждый найденный ингредиент.
+    // Выше те, у кого больше совпадений, затем те, кому нужно меньше прочих ингредиентов.
+    public RecipeSearchResult search(String query) {
+        List<Set<String>> items = new ArrayList<>();
+        for (String item : query == null ? new String[0] : query.split(",")) {
+            Set<String> terms = terms(item);
+            if (!terms.isEmpty()) {
+                items.add(terms);
+            }
+        }
+        if (items.isEmpty()) {
+            fallbacks.incrementAndGet();
+            return null;
+        }
+
+        List<Integer> ranked = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        synchronized (this) {
+            int[] scores = new int[recipes.size()];
+            for (Set<String> item : items) {
+                for (int ordinal : matchAll(item)) {
+                    if (scores[ordinal]++ == 0) {
+                        ranked.add(ordinal);
+                    }
+                }
+            }
+            int fullMatches = 0;
+            for (int ordinal : ranked) {
+                if (scores[ordinal] == items.size()) {
+                    fullMatches++;
+                }
+            }
+            if (fullMatches < minFullMatches) {
+                fallbacks.incrementAndGet();
+                return null;
+            }
+            ranked.sort((a, b) -> {
+                if (scores[a] != scores[b]) {
+                    return Integer.compare(scores[b], scores[a]);
+                }
+                int byMissing = Integer.compare(recipes.get(a).ingredientCount - scores[a], recipes.get(b).ingredientCount - scores[b]);
+                return byMissing != 0 ? byMissing : Integer.compare(a, b);
+            });
+            for (int ordinal : ranked.subList(0, Math.min(maxResults, ranked.size()))) {
+                ids.add(recipes.get(ordinal).id);
+                titles.add(recipes.get(ordinal).title);
+            }
+        }
+        localSearches.incrementAndGet();
+        return new RecipeSearchResult(ids, titles);
+    }
+
+    // Пересечение начинается с самого короткого списка, остальные проверяются двоичным поиском
+    private int[] matchAll(Set<String> terms) {
+        List<PostingList> lists = new ArrayList<>();
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists.get(0).ordinals, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            PostingList other = lists.get(i);
+            int kept = 0;
+            int from = 0;
+            for (int j = 0; j < size; j++) {
+                int position = Arrays.binarySearch(other.ordinals, from, other.size, result[j]);
+                if (position >= 0) {
+                    result[kept++] = result[j];
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Слова ингредиента в нижнем регистре и в единственном числе: "Cherry Tomatoes" -> [cherry, tomato]
+    static Set<String> terms(String ingredient) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : ingredient.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+            if (word.length() >= MIN_TERM_LENGTH) {
+                terms.add(singular(word));
+            }
+        }
+        return terms;
+    }
+
+    private static String singular(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.length() > 4 && (word.endsWith("oes") || word.endsWith("ches") || word.endsWith("shes") || word.endsWith("xes"))) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    private static RecipeRecord readRecipe(JsonParser parser) throws IOException {
+        int id = 0;
+        String title = "";
+        List<String> ingredients = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsInt();
+            } else if ("title".equals(field)) {
+                title = parser.getValueAsString("");
+            } else if ("extendedIngredients".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String name = "";
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String ingredientField = parser.getCurrentName();
+                        parser.nextToken();
+                        // nameClean - каноническое название без уточнений, name - запасной вариант
+                        if ("nameClean".equals(ingredientField) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                            name = parser.getValueAsString("");
+                        } else if ("name".equals(ingredientField) && name.isEmpty()) {
+                            name = parser.getValueAsString("");
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if (!name.isBlank()) {
+                        ingredients.add(name.trim());
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new RecipeRecord(id, title, ingredients);
+    }
+
+    public synchronized int size() {
+        return recipes.size();
+    }
+
+    public synchronized int getTermCount() {
+        return postings.size();
+    }
+
+    public long getLocalSearchCount() {
+        return localSearches.get();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    public String getStats() {
+        return String.format("LocalRecipeIndex[recipes=%d, terms=%d, local=%d, fallbacks=%d]",
+                size(), getTermCount(), getLocalSearchCount(), getFallbackCount());
+    }
+
+    @Override
+    public void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private static final class IndexedRecipe {
+        private final int id;
+        private final String title;
+        private final int ingredientCount;
+
+        private IndexedRecipe(int id, String title, int ingredientCount) {
+            this.id = id;
+            this.title = title;
+            this.ingredientCount = ingredientCount;
+        }
+    }
+
+    private static final class RecipeRecord {
+        private final int id;
+        private final String title;
+        private final List<String> ingredients;
+
+        private RecipeRecord(int id, String title, List<String> ingredients) {
+            this.id = id;
+            this.title = title;
+            this.ingredients = Collections.unmodifiableList(ingredients);
+        }
+    }
+
+    private static final class PostingList {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+}
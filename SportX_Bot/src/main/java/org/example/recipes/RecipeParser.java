@@ -1,8 +1,10 @@
 package org.example.recipes;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.OkHttpClient;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -11,59 +13,114 @@ import java.util.logging.Logger;
 public class RecipeParser {
 
     private static final Logger logger = Logger.getLogger(RecipeParser.class.getName());
-    OkHttpClient okHttpClient = new OkHttpClient();
-    private final TranslateService translateService = new TranslateService(okHttpClient);
+    // JsonFactory потокобезопасен и дорог в создании - один на все разборы
+    static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Лимит длины одного запроса к API перевода
+    private static final int MAX_TRANSLATION_CHARS = 499;
+    private final TranslateService translateService;
+
+    public RecipeParser() {
+        this(new TranslateService(SharedHttpClient.get()));
+    }
+
+    public RecipeParser(TranslateService translateService) {
+        this.translateService = translateService;
+    }
 
     public List<Integer> parseRecipeIds(String jsonResponse) {
-        List<Integer> recipeIds = new ArrayList<>();
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(jsonResponse);
-            JsonNode resultsNode = rootNode.path("results");
-            for (JsonNode result : resultsNode) {
-                recipeIds.add(result.path("id").asInt());
+        return parseSearchResult(jsonResponse).getIds();
+    }
+
+    public List<String> parseRecipeTitles(String jsonResponse) {
+        return parseSearchResult(jsonResponse).getTitles();
+    }
+
+    // Один потоковый проход по ответу поиска: из каждого элемента results берутся только id и title
+    public RecipeSearchResult parseSearchResult(String jsonResponse) {
+        List<Integer> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonResponse)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new RecipeSearchResult(ids, titles);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"results".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    int id = 0;
+                    String title = "";
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String resultField = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("id".equals(resultField)) {
+                            id = parser.getValueAsInt();
+                        } else if ("title".equals(resultField)) {
+                            title = parser.getValueAsString("");
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    ids.add(id);
+                    titles.add(title);
+                }
             }
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Ошибка при парсинге JSON для ID рецептов", e);
+            logger.log(Level.SEVERE, "Ошибка при парсинге JSON результатов поиска", e);
         }
-        return recipeIds;
+        return new RecipeSearchResult(ids, titles);
     }
 
-    public List<String> parseRecipeTitles(String jsonResponse) {
-        List<String> recipeTitles = new ArrayList<>();
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(jsonResponse);
-            JsonNode resultsNode = rootNode.path("results");
-            for (JsonNode result : resultsNode) {
-                recipeTitles.add(result.path("title").asText());
+    // Из большого ответа /information читаются только название и инструкции, остальное пропускается без разбора
+    private static String[] parseTitleAndInstructions(String jsonResponse) throws IOException {
+        String title = "";
+        String instructions = "";
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonResponse)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Ответ не является JSON-объектом");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("title".equals(field)) {
+                    title = parser.getValueAsString("");
+                } else if ("instructions".equals(field)) {
+                    instructions = parser.getValueAsString("");
+                } else {
+                    parser.skipChildren();
+                }
             }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Ошибка при парсинге JSON для названий рецептов", e);
         }
-        return recipeTitles;
+        return new String[]{title, instructions};
     }
 
     public String getRecipeDetails(String jsonResponse) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(jsonResponse);
-
-            String title = rootNode.path("title").asText();
-            String instructions = rootNode.path("instructions").asText();
-
-            if (instructions != null) {
-                instructions = instructions.replaceAll("<ol>", "\n").replaceAll("</ol>", "")
-                        .replaceAll("<li>", "- ").replaceAll("</li>", "\n")
-                        .replaceAll("<b>", "").replaceAll("</b>", "")
-                        .replaceAll("<i>", "").replaceAll("</i>", "");
-            }
+            String[] fields = parseTitleAndInstructions(jsonResponse);
+            String title = fields[0];
+            String instructions = fields[1];
 
-            if (instructions == null || instructions.isEmpty()) {
-                instructions = "Инструкции отсутствуют.";
+            SanitizedText sanitized = HtmlSanitizer.sanitize(instructions);
+            if (sanitized.isBlank()) {
+                sanitized = HtmlSanitizer.sanitize("Инструкции отсутствуют.");
             }
 
-            return "Вы выбрали рецепт: " + translateService.translateFromEnglish(title) + "\n\nРуководство к действию:\n" + divAndTranslate(instructions);
+            // название и все части инструкции переводятся одним пакетом параллельных запросов
+            List<String> texts = new ArrayList<>();
+            texts.add(title);
+            texts.addAll(sanitized.chunks(MAX_TRANSLATION_CHARS));
+            List<String> translated = translateService.translateFromEnglish(texts);
+            String translatedInstructions = String.join(" ", translated.subList(1, translated.size())).trim();
+            // сообщение уходит с ParseMode.HTML; экранируется уже переведенный текст, так как перевод может вернуть & и <
+            return "Вы выбрали рецепт: " + HtmlSanitizer.escapeHtml(translated.get(0)) + "\n\nРуководство к действию:\n"
+                    + HtmlSanitizer.escapeHtml(translatedInstructions);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Ошибка при парсинге деталей рецепта", e);
             return "Произошла ошибка при обработке данных рецепта.";
@@ -71,29 +128,7 @@ public class RecipeParser {
     }
 
     public String divAndTranslate(String str) {
-        if (str.length() > 499) {
-            List<String> parts = new ArrayList<>();
-            String[] sentences = str.split("(?<=[.!?])\\s*");
-
-            StringBuilder currentPart = new StringBuilder();
-            for (String sentence : sentences) {
-                if (currentPart.length() + sentence.length() > 499) {
-                    parts.add(currentPart.toString().trim());
-                    currentPart.setLength(0);
-                }
-                currentPart.append(sentence).append(" ");
-            }
-            if (!currentPart.isEmpty()) {
-                parts.add(currentPart.toString().trim());
-            }
-
-            StringBuilder result = new StringBuilder();
-            for (String part : parts) {
-                result.append(translateService.translateFromEnglish(part)).append(" ");
-            }
-            return result.toString().trim();
-        } else {
-            return translateService.translateFromEnglish(str);
-        }
+        List<String> parts = HtmlSanitizer.sanitize(str).chunks(MAX_TRANSLATION_CHARS);
+        return String.join(" ", translateService.translateFromEnglish(parts)).trim();
     }
 }
@@ -0,0 +1,226 @@
+package org.example.recipes;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Упреждающая загрузка деталей рецептов: после поиска первые topK результатов загружаются и переводятся
+// в фоне, пока пользователь выбирает кнопку, - к нажатию ответ API и переводы уже лежат в кэшах.
+// Пул маленький, с ограниченной очередью и пониженным приоритетом потоков: при нагрузке задачи отбрасываются,
+// а не вытесняют обработку пользовательских запросов. Переводы загрузчик выполняет в том же фоновом
+// потоке, а не в общем пуле TranslateService. Когда пользователь уходит из выбора рецепта,
+// еще не начатые задачи отменяются.
+public class RecipePrefetcher implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(RecipePrefetcher.class.getName());
+    private static final int MAX_SESSIONS = 10_000;
+
+    private final int topK;
+    private final ThreadPoolExecutor executor;
+
+    // Последний поиск каждого чата; самые старые сессии вытесняются
+    private final Map<Long, Session> sessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Session> eldest) {
+            if (size() > MAX_SESSIONS) {
+                eldest.getValue().cancel();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong wasted = new AtomicLong();
+
+    // Загрузчик обязан бросать исключение при неудаче: иначе неудачная загрузка считалась бы прогревом и попаданием
+    @FunctionalInterface
+    public interface Loader {
+        void load(int recipeId) throws Exception;
+    }
+
+    // topK = 0 отключает упреждающую загрузку
+    public RecipePrefetcher(int topK, int threads, int queueCapacity) {
+        this.topK = topK;
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "recipe-prefetch");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static RecipePrefetcher disabled() {
+        return new RecipePrefetcher(0, 1, 1);
+    }
+
+    public boolean isEnabled() {
+        return topK > 0;
+    }
+
+    // Заменяет предыдущую сессию чата: ее незавершенные задачи отменяются
+    public void prefetch(long chatId, List<Integer> recipeIds, Loader loader) {
+        if (!isEnabled() || recipeIds.isEmpty()) {
+            return;
+        }
+        Session session = new Session();
+        Session previous;
+        synchronized (sessions) {
+            previous = sessions.put(chatId, session);
+        }
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        for (int recipeId : recipeIds.subList(0, Math.min(topK, recipeIds.size()))) {
+            Runnable task = () -> load(session, recipeId, loader);
+            try {
+                executor.execute(task);
+                session.tasks.add(task);
+                scheduled.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void load(Session session, int recipeId, Loader loader) {
+        if (session.closed) {
+            return;
+        }
+        try {
+            loader.load(recipeId);
+            session.markWarmed(recipeId);
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.log(Level.FINE, "Не удалось заранее загрузить рецепт " + recipeId, e);
+        }
+    }
+
+    // Пользователь нажал на рецепт: попадание, если он уже был загружен заранее
+    public void recordSelection(long chatId, int recipeId) {
+        if (!isEnabled()) {
+            return;
+        }
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(chatId);
+        }
+        if (session != null && session.take(recipeId)) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+
+    // Пользователь занялся другим: неначатые загрузки отменяются, загруженные и не выбранные считаются лишними
+    public void cancel(long chatId) {
+        if (!isEnabled()) {
+            return;
+        }
+        Session session;
+        synchronized (sessions) {
+            session = sessions.remove(chatId);
+        }
+        if (session != null) {
+            session.cancel();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public long getScheduledCount() {
+        return scheduled.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getWastedCount() {
+        return wasted.get();
+    }
+
+    public String getStats() {
+        return String.format("RecipePrefetcher[topK=%d, scheduled=%d, completed=%d, failed=%d, dropped=%d, cancelled=%d, " +
+                        "hits=%d, misses=%d, wasted=%d, queued=%d]",
+                topK, getScheduledCount(), getCompletedCount(), getFailedCount(), getDroppedCount(), getCancelledCount(),
+                getHitCount(), getMissCount(), getWastedCount(), executor.getQueue().size());
+    }
+
+    private class Session {
+        private final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        private final Set<Integer> warmed = new HashSet<>();
+        private volatile boolean closed;
+
+        private synchronized void markWarmed(int recipeId) {
+            if (closed) {
+                wasted.incrementAndGet();
+            } else {
+                warmed.add(recipeId);
+            }
+        }
+
+        private synchronized boolean take(int recipeId) {
+            return warmed.remove(recipeId);
+        }
+
+        private synchronized void cancel() {
+            closed = true;
+            // задачи, еще стоящие в очереди, убираются из нее; уже начатые доработают
+            for (Runnable task : tasks) {
+                if (executor.remove(task)) {
+                    cancelled.incrementAndGet();
+                }
+            }
+            wasted.addAndGet(warmed.size());
+            warmed.clear();
+        }
+    }
+}
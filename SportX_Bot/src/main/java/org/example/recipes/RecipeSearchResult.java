@@ -0,0 +1,32 @@
+package org.example.recipes;
+
+import java.util.Collections;
+import java.util.List;
+
+// Результат поиска рецептов: идентификаторы и названия в порядке выдачи API
+public class RecipeSearchResult {
+
+    private final List<Integer> ids;
+    private final List<String> titles;
+
+    public RecipeSearchResult(List<Integer> ids, List<String> titles) {
+        this.ids = Collections.unmodifiableList(ids);
+        this.titles = Collections.unmodifiableList(titles);
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public List<String> getTitles() {
+        return titles;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+}
@@ -1,6 +1,5 @@
 package org.example.recipes;
 
-import okhttp3.OkHttpClient;
 import org.example.bot.DatabaseManager;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -17,15 +16,29 @@ public class RecipesCommand {
     private final SpoonacularAPI spoonacularAPI;
     private final DatabaseManager databaseManager;
     private final RecipeParser recipeParser; // Новый класс
+    // Упреждающая загрузка переводит в своем фоновом потоке и не занимает общий пул переводов
+    private final RecipeParser prefetchParser;
     private boolean waitingForIngredients = false;
+    // После рассылки многие пользователи одновременно открывают один и тот же рецепт
+    private final SingleFlight<Integer, String> recipeDetailsRequests = new SingleFlight<>();
+    private final RecipePrefetcher prefetcher;
+    private final LocalRecipeIndex localIndex;
+    private static final int LOCAL_MIN_FULL_MATCHES = 5;
+    private static final int LOCAL_MAX_RESULTS = 10;
     private static final Logger logger = Logger.getLogger(RecipesCommand.class.getName());
 
     public RecipesCommand(SpoonacularAPI api, DatabaseManager dbManager) {
+        this(api, dbManager, RecipePrefetcher.disabled(), new LocalRecipeIndex(null, LOCAL_MIN_FULL_MATCHES, LOCAL_MAX_RESULTS));
+    }
+
+    public RecipesCommand(SpoonacularAPI api, DatabaseManager dbManager, RecipePrefetcher prefetcher, LocalRecipeIndex localIndex) {
         this.spoonacularAPI = api;
         this.databaseManager = dbManager;
         this.recipeParser = new RecipeParser();
-        OkHttpClient okHttpClient = new OkHttpClient();
-        this.translateService = new TranslateService(okHttpClient);
+        this.prefetchParser = new RecipeParser(TranslateService.inCallerThread(SharedHttpClient.get(), TranslationMemory.getShared()));
+        this.translateService = new TranslateService(SharedHttpClient.get());
+        this.prefetcher = prefetcher;
+        this.localIndex = localIndex;
     }
 
     public SendMessage getContent(long userId, String userInput) {
@@ -58,17 +71,26 @@ public class RecipesCommand {
         SendMessage message = new SendMessage();
         message.setChatId(String.valueOf(chatId));
         try {
-            String response = spoonacularAPI.searchRecipes(translateService.translateToEnglish(ingredientsInput), "", "");
+            String query = translateService.translateToEnglish(ingredientsInput);
 
-            List<String> recipeTitles = recipeParser.parseRecipeTitles(response);
-            List<Integer> recipeIds = recipeParser.parseRecipeIds(response);
+            // частые сочетания ингредиентов обслуживаются локальным каталогом без обращения к API
+            RecipeSearchResult searchResult = localIndex.search(query);
+            if (searchResult == null) {
+                searchResult = recipeParser.parseSearchResult(spoonacularAPI.searchRecipes(query, "", ""));
+            }
 
-            if (recipeTitles.isEmpty()) {
+            if (searchResult.isEmpty()) {
                 message.setText("К сожалению, рецепты не найдены. Попробуйте уточнить ингредиенты.");
             } else {
-                message.setText("Рецепты, которые могут вам подойти:\n" + translateService.translateFromEnglish(String.join("\n ", recipeTitles)));
-                message.setReplyMarkup(createRecipeSelectionKeyboard(recipeTitles, recipeIds));
+                // все названия переводятся одним пакетом и используются и в тексте, и на кнопках
+                List<String> translatedTitles = translateService.translateFromEnglish(searchResult.getTitles());
+                message.setText("Рецепты, которые могут вам подойти:\n" + String.join("\n ", translatedTitles));
+                message.setReplyMarkup(buildRecipeSelectionKeyboard(translatedTitles, searchResult.getIds()));
+                prefetchDetails(chatId, searchResult.getIds());
             }
+        } catch (ExternalApiException e) {
+            logger.warning("Сервис рецептов недоступен: " + e.getMessage());
+            message.setText(unavailableText(e));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Ошибка при запросе рецептов", e);
             message.setText("Произошла ошибка. Проверьте данные и попробуйте снова.");
@@ -77,12 +99,16 @@ public class RecipesCommand {
     }
 
     public InlineKeyboardMarkup createRecipeSelectionKeyboard(List<String> recipeTitles, List<Integer> recipeIds) {
+        return buildRecipeSelectionKeyboard(translateService.translateFromEnglish(recipeTitles), recipeIds);
+    }
+
+    private InlineKeyboardMarkup buildRecipeSelectionKeyboard(List<String> translatedTitles, List<Integer> recipeIds) {
         InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
         List<List<InlineKeyboardButton>> rows = new ArrayList<>();
 
-        for (int i = 0; i < recipeTitles.size(); i++) {
+        for (int i = 0; i < translatedTitles.size(); i++) {
             InlineKeyboardButton button = new InlineKeyboardButton();
-            button.setText(translateService.translateFromEnglish(recipeTitles.get(i)));
+            button.setText(translatedTitles.get(i));
             button.setCallbackData("recipe_" + recipeIds.get(i));
             rows.add(List.of(button));
         }
@@ -90,13 +116,62 @@ public class RecipesCommand {
         return inlineKeyboardMarkup;
     }
 
+    // Квоту API на упреждающую загрузку тратим, только пока сервисы рецептов и перевода работают штатно
+    private void prefetchDetails(long chatId, List<Integer> recipeIds) {
+        if (!prefetcher.isEnabled() || spoonacularAPI.getGovernor().getState() != ApiGovernor.State.CLOSED
+                || TranslateService.getGovernor().getState() != ApiGovernor.State.CLOSED) {
+            return;
+        }
+        prefetcher.prefetch(chatId, recipeIds, recipeId -> loadRecipeDetails(recipeId, prefetchParser));
+    }
+
+    // Выбор рецепта с кнопки: учитывается в метриках упреждающей загрузки
+    public String getRecipeDetails(long chatId, int recipeId) {
+        prefetcher.recordSelection(chatId, recipeId);
+        return getRecipeDetails(recipeId);
+    }
+
+    public void cancelPrefetch(long chatId) {
+        prefetcher.cancel(chatId);
+    }
+
+    public RecipePrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    public LocalRecipeIndex getLocalIndex() {
+        return localIndex;
+    }
+
     public String getRecipeDetails(int recipeId) {
         try {
-            String response = spoonacularAPI.getRecipeInformation(recipeId);
-            return recipeParser.getRecipeDetails(response);
+            return loadRecipeDetails(recipeId, recipeParser);
+        } catch (ExternalApiException e) {
+            logger.warning("Сервис рецептов недоступен: " + e.getMessage());
+            return unavailableText(e);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Ошибка при получении деталей рецепта", e);
             return "Произошла ошибка при получении деталей рецепта. Попробуйте позже.";
         }
     }
+
+    // Ошибки API не превращаются в текст ответа: упреждающая загрузка по ним отличает неудачу от прогрева
+    private String loadRecipeDetails(int recipeId, RecipeParser parser) throws Exception {
+        return recipeDetailsRequests.execute(recipeId, () -> {
+            String response = spoonacularAPI.getRecipeInformation(recipeId);
+            localIndex.addFromJson(response);
+            return parser.getRecipeDetails(response);
+        });
+    }
+
+    private static String unavailableText(ExternalApiException e) {
+        if (e.getReason() == ExternalApiException.Reason.QUOTA_EXHAUSTED) {
+            return "Лимит запросов к сервису рецептов на сегодня исчерпан. Попробуйте завтра.";
+        }
+        return "Сервис рецептов временно недоступен. Попробуйте позже.";
+    }
+
+    public SingleFlight<Integer, String> getRecipeDetailsCoalescing() {
+        return recipeDetailsRequests;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+package org.example.recipes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+// Двухуровневый кэш ответов: LRU в памяти с ограничением по времени жизни перед постоянным файлом на диске.
+// Промах в памяти проверяет диск и поднимает найденное значение обратно в память до конца его исходного срока.
+public class ResponseCache implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(ResponseCache.class.getName());
+
+    private final int maxMemoryEntries;
+    private final long ttlMillis;
+    private final DiskCacheStore diskStore;
+    private final Map<String, CachedResponse> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public ResponseCache(int maxMemoryEntries, long ttlMillis, Path diskPath, long maxDiskBytes) {
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.ttlMillis = ttlMillis;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                if (size() > ResponseCache.this.maxMemoryEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.diskStore = diskPath != null ? openDiskStore(diskPath, ttlMillis, maxDiskBytes) : null;
+    }
+
+    private static DiskCacheStore openDiskStore(Path path, long ttlMillis, long maxDiskBytes) {
+        try {
+            return new DiskCacheStore(path, ttlMillis, maxDiskBytes);
+        } catch (IOException e) {
+            // без диска кэш продолжает работать только в памяти
+            logger.log(Level.WARNING, "Не удалось открыть файл кэша " + path, e);
+            return null;
+        }
+    }
+
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            CachedResponse cached = memory.get(key);
+            if (cached != null) {
+                if (now < cached.expiresAt) {
+                    memoryHits.incrementAndGet();
+                    return cached.value;
+                }
+                // устаревшая запись остается до вытеснения: ее можно отдать, если API недоступен
+                expirations.incrementAndGet();
+            }
+        }
+        DiskCacheStore.Stored stored = diskStore != null ? diskStore.read(key) : null;
+        long expiresAt = stored != null ? stored.getWrittenAt() + ttlMillis : 0;
+        if (stored == null || now >= expiresAt) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        // срок считается от записи на диск, а не от подъема в память
+        putInMemory(key, stored.getValue(), expiresAt);
+        return stored.getValue();
+    }
+
+    // Значение без учета срока жизни - для ответа при недоступном API; после перезапуска берется с диска
+    public String getStale(String key) {
+        synchronized (memory) {
+            CachedResponse cached = memory.get(key);
+            if (cached != null) {
+                return cached.value;
+            }
+        }
+        DiskCacheStore.Stored stored = diskStore != null ? diskStore.read(key) : null;
+        return stored != null ? stored.getValue() : null;
+    }
+
+    // Обход сохраненных ответов с ключом, начинающимся с prefix; в метриках попаданий не учитывается
+    public void forEachStored(String prefix, BiConsumer<String, String> consumer) {
+        Map<String, String> stored = new LinkedHashMap<>();
+        if (diskStore != null) {
+            for (String key : diskStore.keys()) {
+                if (key.startsWith(prefix)) {
+                    String value = diskStore.get(key);
+                    if (value != null) {
+                        stored.put(key, value);
+                    }
+                }
+            }
+        }
+        synchronized (memory) {
+            for (Map.Entry<String, CachedResponse> entry : memory.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    stored.putIfAbsent(entry.getKey(), entry.getValue().value);
+                }
+            }
+        }
+        stored.forEach(consumer);
+    }
+
+    public void put(String key, String value) {
+        putInMemory(key, value, System.currentTimeMillis() + ttlMillis);
+        if (diskStore != null) {
+            diskStore.put(key, value);
+        }
+    }
+
+    private void putInMemory(String key, String value, long expiresAt) {
+        synchronized (memory) {
+            memory.put(key, new CachedResponse(value, expiresAt));
+        }
+    }
+
+    // Ключ поиска по ингредиентам: порядок, регистр, пробелы и повторы не влияют
+    public static String searchKey(String query, String diet, String intolerances) {
+        return "search:" + normalizeList(query) + "|" + normalizeList(diet) + "|" + normalizeList(intolerances);
+    }
+
+    public static String recipeKey(int recipeId) {
+        return "recipe:" + recipeId;
+    }
+
+    static String normalizeList(String value) {
+        if (value == null) {
+            return "";
+        }
+        return Arrays.stream(value.toLowerCase(Locale.ROOT).split(","))
+                .map(item -> item.trim().replaceAll("\\s+", " "))
+                .filter(item -> !item.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    public int getMemorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public int getDiskSize() {
+        return diskStore != null ? diskStore.size() : 0;
+    }
+
+    public long getDiskBytes() {
+        return diskStore != null ? diskStore.getFileBytes() : 0;
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    public double getHitRatio() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public String getStats() {
+        return String.format(Locale.ROOT, "ResponseCache[hitRatio=%.2f, memoryHits=%d, diskHits=%d, misses=%d, memory=%d/%d, " +
+                        "disk=%d (%dB), evictions=%d, expirations=%d]",
+                getHitRatio(), getMemoryHitCount(), getDiskHitCount(), getMissCount(), getMemorySize(), maxMemoryEntries,
+                getDiskSize(), getDiskBytes(), getEvictionCount(), getExpirationCount());
+    }
+
+    @Override
+    public void close() {
+        if (diskStore != null) {
+            diskStore.close();
+        }
+    }
+
+    private static final class CachedResponse {
+        private final String value;
+        private final long expiresAt;
+
+        private CachedResponse(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
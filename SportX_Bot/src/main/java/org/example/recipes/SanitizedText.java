@@ -0,0 +1,66 @@
+package org.example.recipes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Текст инструкции без разметки и позиции концов предложений, найденные при том же проходе
+public class SanitizedText {
+
+    private final String text;
+    private final int[] sentenceEnds;
+    private final int sentenceCount;
+
+    SanitizedText(String text, int[] sentenceEnds, int sentenceCount) {
+        this.text = text;
+        this.sentenceEnds = sentenceEnds;
+        this.sentenceCount = sentenceCount;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getSentenceCount() {
+        return sentenceCount;
+    }
+
+    public boolean isBlank() {
+        return text.isBlank();
+    }
+
+    // Собирает предложения в части не длиннее maxChars; предложение длиннее лимита режется по пробелу
+    public List<String> chunks(int maxChars) {
+        if (text.length() <= maxChars) {
+            return List.of(text);
+        }
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder(maxChars);
+        int start = 0;
+        for (int i = 0; i < sentenceCount; i++) {
+            int end = sentenceEnds[i];
+            String sentence = text.substring(start, end).strip();
+            start = end;
+            if (sentence.isEmpty()) {
+                continue;
+            }
+            if (current.length() > 0 && current.length() + 1 + sentence.length() > maxChars) {
+                parts.add(current.toString());
+                current.setLength(0);
+            }
+            while (sentence.length() > maxChars) {
+                int cut = sentence.lastIndexOf(' ', maxChars);
+                cut = cut > 0 ? cut : maxChars;
+                parts.add(sentence.substring(0, cut).strip());
+                sentence = sentence.substring(cut).strip();
+            }
+            if (current.length() > 0) {
+                current.append(' ');
+            }
+            current.append(sentence);
+        }
+        if (current.length() > 0) {
+            parts.add(current.toString());
+        }
+        return parts;
+    }
+}
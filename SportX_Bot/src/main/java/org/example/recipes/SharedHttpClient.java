@@ -0,0 +1,193 @@
+package org.example.recipes;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// Единый HTTP-клиент для всех внешних интеграций: один пул keep-alive соединений и один диспетчер на процесс,
+// HTTP/2 там, где сервер его поддерживает (ALPN), прозрачный gzip (OkHttp сам добавляет Accept-Encoding),
+// ограничение одновременных запросов к одному хосту и метрики повторного использования соединений и задержек.
+public class SharedHttpClient {
+
+    private static final Logger logger = Logger.getLogger(SharedHttpClient.class.getName());
+
+    private static SharedHttpClient instance;
+
+    private final OkHttpClient client;
+    private final int maxRequestsPerHost;
+    private final long hostWaitMillis;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong hostLimitWaits = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public static synchronized SharedHttpClient getInstance() {
+        if (instance == null) {
+            instance = new SharedHttpClient(loadConfig());
+        }
+        return instance;
+    }
+
+    // Клиент для вызовов; производные клиенты через newBuilder() используют тот же пул и диспетчер
+    public static OkHttpClient get() {
+        return getInstance().client;
+    }
+
+    private static Properties loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream("config.properties")) {
+            properties.load(input);
+        } catch (IOException e) {
+            logger.info("Настройки HTTP-клиента не загружены, используются значения по умолчанию");
+        }
+        return properties;
+    }
+
+    public SharedHttpClient(Properties properties) {
+        this.maxRequestsPerHost = Integer.parseInt(properties.getProperty("http.maxRequestsPerHost", "8"));
+        this.hostWaitMillis = Long.parseLong(properties.getProperty("http.hostWaitMs", "10000"));
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Integer.parseInt(properties.getProperty("http.maxRequests", "64")));
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(
+                        Integer.parseInt(properties.getProperty("http.maxIdleConnections", "10")),
+                        Long.parseLong(properties.getProperty("http.keepAliveMs", "300000")), TimeUnit.MILLISECONDS))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(Long.parseLong(properties.getProperty("http.connectTimeoutMs", "5000")), TimeUnit.MILLISECONDS)
+                .readTimeout(Long.parseLong(properties.getProperty("http.readTimeoutMs", "10000")), TimeUnit.MILLISECONDS)
+                .callTimeout(Long.parseLong(properties.getProperty("http.callTimeoutMs", "20000")), TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .addInterceptor(this::limitPerHost)
+                .eventListenerFactory(call -> new MetricsListener())
+                .build();
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    // Лимит диспетчера действует только на enqueue(); синхронные execute() ограничиваем сами
+    private Response limitPerHost(Interceptor.Chain chain) throws IOException {
+        Semaphore permits = hostPermits.computeIfAbsent(chain.request().url().host(), host -> new Semaphore(maxRequestsPerHost));
+        if (!permits.tryAcquire()) {
+            hostLimitWaits.incrementAndGet();
+            try {
+                if (!permits.tryAcquire(hostWaitMillis, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Превышен лимит одновременных запросов к " + chain.request().url().host());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Ожидание запроса прервано", e);
+            }
+        }
+        try {
+            return chain.proceed(chain.request());
+        } finally {
+            permits.release();
+        }
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public long getFailedCallCount() {
+        return failedCalls.get();
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    // Сколько раз запрос получил уже открытое соединение из пула
+    public long getConnectionReuseCount() {
+        return Math.max(0, connectionsAcquired.get() - connectionsOpened.get());
+    }
+
+    public long getHostLimitWaitCount() {
+        return hostLimitWaits.get();
+    }
+
+    public long getAverageLatencyMillis() {
+        long count = calls.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    public String getStats() {
+        return String.format("SharedHttpClient[calls=%d, failed=%d, connectionsOpened=%d, reused=%d, idle=%d, " +
+                        "hostLimitWaits=%d, avgLatency=%dms, maxLatency=%dms]",
+                getCallCount(), getFailedCallCount(), getConnectionsOpened(), getConnectionReuseCount(),
+                client.connectionPool().idleConnectionCount(), getHostLimitWaitCount(),
+                getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    private final class MetricsListener extends EventListener {
+        private long startedAt;
+
+        @Override
+        public void callStart(Call call) {
+            startedAt = System.nanoTime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectionsOpened.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            record();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failedCalls.incrementAndGet();
+            record();
+        }
+
+        private void record() {
+            long latency = System.nanoTime() - startedAt;
+            calls.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.recipes;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Объединение одновременных одинаковых запросов: первый вызов с ключом выполняет загрузку,
+// остальные, пришедшие до ее окончания, получают тот же результат через общий CompletableFuture.
+// Результат не кэшируется - после завершения следующий вызов снова выполняет загрузку.
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, Callable<V> loader) throws Exception {
+        calls.incrementAndGet();
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            V value = loader.call();
+            created.complete(value);
+            return value;
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    // Сколько вызовов не выполняли загрузку сами, а дождались чужой
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public String getStats() {
+        return String.format("SingleFlight[calls=%d, coalesced=%d, inFlight=%d]", getCallCount(), getCoalescedCount(), getInFlightCount());
+    }
+}
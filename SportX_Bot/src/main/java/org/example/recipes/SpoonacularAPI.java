@@ -1,11 +1,14 @@
 package org.example.recipes;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,72 +16,135 @@ import java.util.logging.Logger;
 public class SpoonacularAPI {
     private final String apiToken;
     private static final String BASE_URL = "https://api.spoonacular.com";
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_PAYMENT_REQUIRED = 402;
+    private static final String SERVICE = "Spoonacular";
+    private static final String QUOTA_LEFT_HEADER = "X-API-Quota-Left";
     private static final Logger logger = Logger.getLogger(SpoonacularAPI.class.getName());
 
+    // Ответы API меняются редко, а дневная квота ограничена
+    private static final int CACHE_MEMORY_ENTRIES = 1000;
+    private static final long CACHE_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final String CACHE_FILE = "spoonacular_cache.dat";
+    private static final long CACHE_MAX_FILE_BYTES = 64L * 1024 * 1024;
+
+    private final ResponseCache cache;
+    private final OkHttpClient client;
+    // Одинаковые запросы, пришедшие одновременно, выполняются одним обращением к API
+    private final SingleFlight<String, String> requests = new SingleFlight<>();
+    // После трех ошибок подряд 30 секунд не обращаемся к API, затем пропускаем один пробный запрос
+    private final ApiGovernor governor = new ApiGovernor(SERVICE, 3, 30_000);
+    private final AtomicLong staleResponses = new AtomicLong();
+
     public SpoonacularAPI(String apiToken) {
+        this(apiToken, new ResponseCache(CACHE_MEMORY_ENTRIES, CACHE_TTL_MILLIS, Paths.get(CACHE_FILE), CACHE_MAX_FILE_BYTES));
+    }
+
+    public SpoonacularAPI(String apiToken, ResponseCache cache) {
+        this(apiToken, cache, SharedHttpClient.get());
+    }
+
+    public SpoonacularAPI(String apiToken, ResponseCache cache, OkHttpClient client) {
         this.apiToken = apiToken;
+        this.cache = cache;
+        this.client = client;
     }
 
-    public String searchRecipes(String query, String diet, String intolerances) throws Exception {
+    public String searchRecipes(String query, String diet, String intolerances) throws ExternalApiException {
         String endpoint = "/recipes/complexSearch";
         String url = BASE_URL + endpoint + "?query=" + URLEncoder.encode(query, StandardCharsets.UTF_8) +
                 "&diet=" + URLEncoder.encode(diet, StandardCharsets.UTF_8) +
                 "&intolerances=" + URLEncoder.encode(intolerances, StandardCharsets.UTF_8) +
                 "&apiKey=" + apiToken;
+        return cachedGet(ResponseCache.searchKey(query, diet, intolerances), url);
+    }
 
+    public String getRecipeInformation(int recipeId) throws ExternalApiException {
+        String endpoint = "/recipes/" + recipeId + "/information";
+        String url = BASE_URL + endpoint + "?apiKey=" + apiToken;
+        return cachedGet(ResponseCache.recipeKey(recipeId), url);
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public SingleFlight<String, String> getRequestCoalescing() {
+        return requests;
+    }
+
+    public ApiGovernor getGovernor() {
+        return governor;
+    }
+
+    public long getStaleResponseCount() {
+        return staleResponses.get();
+    }
+
+    private String cachedGet(String cacheKey, String url) throws ExternalApiException {
+        String cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-                return response.toString();
-            } else {
-                logger.severe("Error: API returned code " + responseCode);
-                return "Ошибка: API вернул код " + responseCode;
-            }
+            return requests.execute(cacheKey, () -> fetch(cacheKey, url));
+        } catch (ExternalApiException | RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error executing request", e);
-            throw new Exception("Ошибка выполнения запроса: " + e.getMessage());
+            throw new ExternalApiException(SERVICE, ExternalApiException.Reason.UNAVAILABLE, 0, e.getMessage(), e);
         }
     }
 
-    public String getRecipeInformation(int recipeId) throws Exception {
-        String endpoint = "/recipes/" + recipeId + "/information";
-        String url = BASE_URL + endpoint + "?apiKey=" + apiToken;
-
+    // При отказе API отдаем устаревший ответ из кэша, если он есть
+    private String fetch(String cacheKey, String url) throws ExternalApiException {
         try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-                return response.toString();
-            } else {
+            return governor.execute(() -> request(cacheKey, url));
+        } catch (ExternalApiException e) {
+            String stale = cache.getStale(cacheKey);
+            if (stale != null) {
+                staleResponses.incrementAndGet();
+                logger.warning("Spoonacular недоступен (" + e.getReason() + "), отдан устаревший ответ из кэша");
+                return stale;
+            }
+            throw e;
+        }
+    }
+
+    // В кэш попадают только успешные ответы
+    private String request(String cacheKey, String url) throws ExternalApiException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            updateQuota(response);
+            int responseCode = response.code();
+            if (responseCode == HTTP_PAYMENT_REQUIRED) {
+                governor.exhaustQuota();
+                throw new ExternalApiException(SERVICE, ExternalApiException.Reason.QUOTA_EXHAUSTED, responseCode,
+                        "дневная квота исчерпана", null);
+            }
+            if (responseCode != HTTP_OK) {
                 logger.severe("Error: API returned code " + responseCode);
-                return "Ошибка: API вернул код " + responseCode;
+                throw new ExternalApiException(SERVICE, ExternalApiException.Reason.HTTP_ERROR, responseCode,
+                        "API вернул код " + responseCode, null);
             }
-        } catch (Exception e) {
+            String body = response.body() != null ? response.body().string() : "";
+            cache.put(cacheKey, body);
+            return body;
+        } catch (IOException e) {
             logger.log(Level.SEVERE, "Error executing request", e);
-            throw new Exception("Ошибка выполнения запроса: " + e.getMessage());
+            throw new ExternalApiException(SERVICE, ExternalApiException.Reason.UNAVAILABLE, 0,
+                    "ошибка выполнения запроса: " + e.getMessage(), e);
+        }
+    }
+
+    // Spoonacular сообщает остаток дневной квоты в баллах
+    private void updateQuota(Response response) {
+        String left = response.header(QUOTA_LEFT_HEADER);
+        if (left != null) {
+            try {
+                governor.updateQuota(Double.parseDouble(left));
+            } catch (NumberFormatException e) {
+                logger.fine("Некорректный заголовок " + QUOTA_LEFT_HEADER + ": " + left);
+            }
         }
     }
 }
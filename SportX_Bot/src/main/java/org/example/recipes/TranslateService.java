@@ -6,44 +6,248 @@ import com.google.gson.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TranslateService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TranslateService.class);
-    private static final String TRANSLATE_API_URL = "https://api.mymemory.translated.net/get?q=%s&langpair=%s|%s";
+    private static final HttpUrl TRANSLATE_API_URL = HttpUrl.get("https://api.mymemory.translated.net/get");
+
+    // Несколько коротких строк уходят одним запросом через перевод строки; запрос не длиннее лимита API
+    private static final String BATCH_DELIMITER = "\n";
+    private static final int MAX_BATCH_CHARS = 450;
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+    private static final ExecutorService TRANSLATE_EXECUTOR = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, runnable -> {
+        Thread thread = new Thread(runnable, "translate-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Общий на процесс: одновременные переводы одного текста разными экземплярами сервиса объединяются
+    private static final SingleFlight<String, String> IN_FLIGHT = new SingleFlight<>();
+
+    private static final String SERVICE = "MyMemory";
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    // Общий на процесс, как и квота MyMemory: при отказе API перевод пропускается, а не ждет таймаута
+    private static final ApiGovernor GOVERNOR = new ApiGovernor(SERVICE, 3, 30_000);
 
     private final OkHttpClient client;
+    private final TranslationMemory translationMemory;
+    private final Executor requestExecutor;
 
     public TranslateService(OkHttpClient client) {
+        this(client, TranslationMemory.getShared());
+    }
+
+    public TranslateService(OkHttpClient client, TranslationMemory translationMemory) {
+        this(client, translationMemory, TRANSLATE_EXECUTOR);
+    }
+
+    private TranslateService(OkHttpClient client, TranslationMemory translationMemory, Executor requestExecutor) {
         this.client = client;
+        this.translationMemory = translationMemory;
+        this.requestExecutor = requestExecutor;
+    }
+
+    // Пакеты переводятся по очереди в вызывающем потоке, без общего пула: для фоновой работы,
+    // которая не должна вставать в очередь перед переводами для пользователей
+    public static TranslateService inCallerThread(OkHttpClient client, TranslationMemory translationMemory) {
+        return new TranslateService(client, translationMemory, Runnable::run);
     }
 
     public String translateToEnglish(String text) {
-        String sourceLang = "ru";
+        return translate(text, "ru", "en");
+    }
 
-        String url = String.format(TRANSLATE_API_URL, text, sourceLang, "en");
-        Request request = new Request.Builder().url(url).build();
+    public String translateFromEnglish(String text) {
+        return translate(text, "en", "ru");
+    }
+
+    // Каждый уникальный текст уходит в API один раз; неудачные переводы не запоминаются
+    private String translate(String text, String sourceLang, String targetLang) {
+        String remembered = translationMemory.get(sourceLang, targetLang, text);
+        if (remembered != null) {
+            return remembered;
+        }
 
-        try (Response response = client.newCall(request).execute()) {
-            assert response.body() != null;
-            return parseResponse(response.body().string());
-        } catch (IOException e) {
+        try {
+            return IN_FLIGHT.execute(sourceLang + "|" + targetLang + "|" + text, () -> {
+                String translation = translateRemote(text, sourceLang, targetLang);
+                if (translation != null && !translation.isEmpty()) {
+                    translationMemory.put(sourceLang, targetLang, text, translation);
+                }
+                return translation;
+            });
+        } catch (ExternalApiException e) {
+            // без перевода пользователь получит исходный текст вместо пустой строки
+            LOGGER.warn("Translation skipped: {}", e.getMessage());
+            return text;
+        } catch (Exception e) {
             LOGGER.error("Error during translation", e);
             return "";
         }
     }
 
-    public String translateFromEnglish(String text) {
-        String targetLang = "ru";
-
-        String url = String.format(TRANSLATE_API_URL, text, "en", targetLang);
+    private String translateRemote(String text, String sourceLang, String targetLang) throws ExternalApiException {
+        // параметры кодируются явно: иначе переводы строк в пакетном запросе были бы вырезаны из URL
+        HttpUrl url = TRANSLATE_API_URL.newBuilder()
+                .addQueryParameter("q", text)
+                .addQueryParameter("langpair", sourceLang + "|" + targetLang)
+                .build();
         Request request = new Request.Builder().url(url).build();
 
-        try (Response response = client.newCall(request).execute()) {
-            assert response.body() != null;
-            return parseResponse(response.body().string());
-        } catch (IOException e) {
-            LOGGER.error("Error during translation", e);
-            return "";
+        return GOVERNOR.execute(() -> {
+            try (Response response = client.newCall(request).execute()) {
+                String body = response.body() != null ? response.body().string() : "";
+                if (response.code() == HTTP_TOO_MANY_REQUESTS || isQuotaFinished(body)) {
+                    GOVERNOR.exhaustQuota();
+                    throw new ExternalApiException(SERVICE, ExternalApiException.Reason.QUOTA_EXHAUSTED, response.code(),
+                            "дневной лимит переводов исчерпан", null);
+                }
+                if (!response.isSuccessful()) {
+                    throw new ExternalApiException(SERVICE, ExternalApiException.Reason.HTTP_ERROR, response.code(),
+                            "API вернул код " + response.code(), null);
+                }
+                return parseResponse(body);
+            } catch (IOException e) {
+                LOGGER.error("Error during translation", e);
+                throw new ExternalApiException(SERVICE, ExternalApiException.Reason.UNAVAILABLE, 0,
+                        "ошибка выполнения запроса: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public List<String> translateFromEnglish(List<String> texts) {
+        return translateBatch(texts, "en", "ru");
+    }
+
+    // Пакетный перевод: одинаковые строки переводятся один раз, короткие упаковываются в общий запрос,
+    // запросы выполняются параллельно (не больше MAX_CONCURRENT_REQUESTS), результат - в исходном порядке
+    public List<String> translateBatch(List<String> texts, String sourceLang, String targetLang) {
+        Map<String, String> translations = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String text : texts) {
+            if (translations.containsKey(text)) {
+                continue;
+            }
+            if (text == null || text.isEmpty()) {
+                translations.put(text, text);
+                continue;
+            }
+            String remembered = translationMemory.get(sourceLang, targetLang, text);
+            translations.put(text, remembered);
+            if (remembered == null) {
+                missing.add(text);
+            }
+        }
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (List<String> pack : pack(missing)) {
+            requests.add(CompletableFuture.supplyAsync(() -> translatePack(pack, sourceLang, targetLang), requestExecutor)
+                    .thenAccept(translated -> {
+                        synchronized (translations) {
+                            for (int i = 0; i < pack.size(); i++) {
+                                translations.put(pack.get(i), translated.get(i));
+                            }
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+
+        List<String> result = new ArrayList<>(texts.size());
+        synchronized (translations) {
+            for (String text : texts) {
+                result.add(translations.get(text));
+            }
+        }
+        return result;
+    }
+
+    // Строки без разделителя внутри группируются, пока суммарная длина не превысит лимит
+    private static List<List<String>> pack(List<String> texts) {
+        List<List<String>> packs = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int length = 0;
+        for (String text : texts) {
+            boolean packable = !text.contains(BATCH_DELIMITER) && text.length() < MAX_BATCH_CHARS;
+            if (!packable) {
+                packs.add(List.of(text));
+                continue;
+            }
+            if (!current.isEmpty() && length + BATCH_DELIMITER.length() + text.length() > MAX_BATCH_CHARS) {
+                packs.add(current);
+                current = new ArrayList<>();
+                length = 0;
+            }
+            length += (current.isEmpty() ? 0 : BATCH_DELIMITER.length()) + text.length();
+            current.add(text);
+        }
+        if (!current.isEmpty()) {
+            packs.add(current);
+        }
+        return packs;
+    }
+
+    // Если API склеил или потерял строки пакета, переводим его элементы по отдельности
+    private List<String> translatePack(List<String> pack, String sourceLang, String targetLang) {
+        if (pack.size() == 1) {
+            return List.of(nullToEmpty(translate(pack.get(0), sourceLang, targetLang)));
+        }
+        String joined;
+        try {
+            joined = translateRemote(String.join(BATCH_DELIMITER, pack), sourceLang, targetLang);
+        } catch (ExternalApiException e) {
+            LOGGER.warn("Batch translation skipped: {}", e.getMessage());
+            return new ArrayList<>(pack);
+        }
+        String[] parts = joined == null ? new String[0] : joined.split(BATCH_DELIMITER, -1);
+        List<String> translated = new ArrayList<>(pack.size());
+        if (parts.length == pack.size()) {
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i].trim();
+                if (!part.isEmpty()) {
+                    translationMemory.put(sourceLang, targetLang, pack.get(i), part);
+                }
+                translated.add(part);
+            }
+            return translated;
+        }
+        LOGGER.warn("Batch translation returned {} parts instead of {}, translating one by one", parts.length, pack.size());
+        for (String text : pack) {
+            translated.add(nullToEmpty(translate(text, sourceLang, targetLang)));
+        }
+        return translated;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    public static SingleFlight<String, String> getTranslationCoalescing() {
+        return IN_FLIGHT;
+    }
+
+    public static ApiGovernor getGovernor() {
+        return GOVERNOR;
+    }
+
+    public TranslationMemory getTranslationMemory() {
+        return translationMemory;
+    }
+
+    private static boolean isQuotaFinished(String responseBody) {
+        try {
+            JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
+            return jsonResponse.has("quotaFinished") && !jsonResponse.get("quotaFinished").isJsonNull()
+                    && jsonResponse.get("quotaFinished").getAsBoolean();
+        } catch (RuntimeException e) {
+            return false;
         }
     }
 
@@ -0,0 +1,195 @@
+package org.example.recipes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Память переводов: (исходный язык, целевой язык, хэш текста) -> перевод.
+// Первый уровень - LRU в памяти, второй - файл на диске, который открывается в фоне при старте,
+// чтобы не задерживать запуск бота. Пока файл не загружен, новые переводы копятся в очереди.
+public class TranslationMemory implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(TranslationMemory.class.getName());
+
+    private static final int DEFAULT_MEMORY_ENTRIES = 10_000;
+    private static final String DEFAULT_FILE = "translation_memory.dat";
+    private static final long DEFAULT_MAX_FILE_BYTES = 32L * 1024 * 1024;
+
+    private static TranslationMemory shared;
+
+    private final int maxMemoryEntries;
+    private final Map<String, String> memory;
+    private final CountDownLatch diskLoaded = new CountDownLatch(1);
+    private final Queue<String[]> pendingWrites = new ConcurrentLinkedQueue<>();
+    private volatile DiskCacheStore diskStore;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Один экземпляр на процесс: в файл памяти переводов может писать только один владелец
+    public static synchronized TranslationMemory getShared() {
+        if (shared == null) {
+            shared = new TranslationMemory(DEFAULT_MEMORY_ENTRIES, Paths.get(DEFAULT_FILE), DEFAULT_MAX_FILE_BYTES);
+        }
+        return shared;
+    }
+
+    public TranslationMemory(int maxMemoryEntries, Path diskPath, long maxDiskBytes) {
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > TranslationMemory.this.maxMemoryEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (diskPath == null) {
+            diskLoaded.countDown();
+            return;
+        }
+        Thread loader = new Thread(() -> loadDisk(diskPath, maxDiskBytes), "translation-memory-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadDisk(Path diskPath, long maxDiskBytes) {
+        try {
+            DiskCacheStore store = new DiskCacheStore(diskPath, 0, maxDiskBytes);
+            diskStore = store;
+            String[] pending;
+            while ((pending = pendingWrites.poll()) != null) {
+                store.put(pending[0], pending[1]);
+            }
+            logger.info("Память переводов загружена: " + store.size() + " записей");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Не удалось открыть файл памяти переводов " + diskPath, e);
+        } finally {
+            diskLoaded.countDown();
+        }
+    }
+
+    public String get(String sourceLang, String targetLang, String text) {
+        String key = key(sourceLang, targetLang, text);
+        synchronized (memory) {
+            String translation = memory.get(key);
+            if (translation != null) {
+                memoryHits.incrementAndGet();
+                return translation;
+            }
+        }
+        DiskCacheStore store = diskStore;
+        String translation = store != null ? store.get(key) : null;
+        if (translation == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        synchronized (memory) {
+            memory.put(key, translation);
+        }
+        return translation;
+    }
+
+    public void put(String sourceLang, String targetLang, String text, String translation) {
+        String key = key(sourceLang, targetLang, text);
+        synchronized (memory) {
+            memory.put(key, translation);
+        }
+        DiskCacheStore store = diskStore;
+        if (store == null && diskLoaded.getCount() > 0) {
+            pendingWrites.add(new String[]{key, translation});
+            // загрузчик мог закончить между проверками - дописываем сами
+            store = diskStore;
+            String[] pending;
+            while (store != null && (pending = pendingWrites.poll()) != null) {
+                store.put(pending[0], pending[1]);
+            }
+            return;
+        }
+        if (store == null) {
+            // загрузка закончилась после первого чтения: хранилище публикуется до countDown, перечитываем его
+            store = diskStore;
+        }
+        if (store != null) {
+            store.put(key, translation);
+        }
+    }
+
+    // Для тестов и диагностики: дождаться окончания фоновой загрузки файла
+    public boolean awaitDiskLoaded(long timeoutMillis) throws InterruptedException {
+        return diskLoaded.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    static String key(String sourceLang, String targetLang, String text) {
+        return sourceLang.toLowerCase(Locale.ROOT) + "|" + targetLang.toLowerCase(Locale.ROOT) + "|" + hash(text);
+    }
+
+    private static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    public int getMemorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public int getDiskSize() {
+        DiskCacheStore store = diskStore;
+        return store != null ? store.size() : 0;
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public String getStats() {
+        return String.format("TranslationMemory[memoryHits=%d, diskHits=%d, misses=%d, memory=%d/%d, disk=%d, evictions=%d]",
+                getMemoryHitCount(), getDiskHitCount(), getMissCount(), getMemorySize(), maxMemoryEntries,
+                getDiskSize(), getEvictionCount());
+    }
+
+    @Override
+    public void close() {
+        DiskCacheStore store = diskStore;
+        if (store != null) {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.bot;
+
+import org.example.recipes.HtmlSanitizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Микробенчмарк: однопроходный HtmlSanitizer против прежней цепочки replaceAll и split по регулярному выражению.
+// Запуск после mvn test-compile: java -cp target/classes:target/test-classes org.example.bot.HtmlSanitizerBenchmark
+// или из IDE. JMH в проекте нет, поэтому замер простой: прогрев, затем несколько раундов с усреднением.
+public class HtmlSanitizerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int ITERATIONS = 20_000;
+
+    public static void main(String[] args) {
+        // типичная инструкция Spoonacular: нумерованный список из ~15 шагов с выделениями, около 3 КБ
+        StringBuilder html = new StringBuilder("<ol>");
+        for (int step = 1; step <= 15; step++) {
+            html.append("<li>Step ").append(step).append(": Preheat the oven to 350&deg;F and combine <b>flour</b>, ")
+                    .append("<i>sugar</i> &amp; butter in a large bowl. Mix until smooth! Is it ready? Then bake.</li>");
+        }
+        html.append("</ol>");
+        String payload = html.toString();
+
+        System.out.printf("Размер входа: %d символов%n", payload.length());
+        long legacy = measure("replaceAll + split", () -> legacyChunks(payload).size());
+        long sanitizer = measure("HtmlSanitizer", () -> HtmlSanitizer.sanitize(payload).chunks(499).size());
+        System.out.printf("Ускорение: %.1fx%n", (double) legacy / sanitizer);
+    }
+
+    private interface Workload {
+        int run();
+    }
+
+    private static long measure(String name, Workload workload) {
+        int sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += workload.run();
+            }
+        }
+        long total = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += workload.run();
+            }
+            total += System.nanoTime() - started;
+        }
+        long perCall = total / ((long) MEASURED_ROUNDS * ITERATIONS);
+        System.out.printf("%-20s %,8d нс/вызов (%d мс всего, sink=%d)%n", name, perCall, TimeUnit.NANOSECONDS.toMillis(total), sink);
+        return perCall;
+    }
+
+    // Прежняя реализация из RecipeParser
+    private static List<String> legacyChunks(String instructions) {
+        instructions = instructions.replaceAll("<ol>", "\n").replaceAll("</ol>", "")
+                .replaceAll("<li>", "- ").replaceAll("</li>", "\n")
+                .replaceAll("<b>", "").replaceAll("</b>", "")
+                .replaceAll("<i>", "").replaceAll("</i>", "");
+        List<String> parts = new ArrayList<>();
+        String[] sentences = instructions.split("(?<=[.!?])\\s*");
+        StringBuilder currentPart = new StringBuilder();
+        for (String sentence : sentences) {
+            if (currentPart.length() + sentence.length() > 499) {
+                parts.add(currentPart.toString().trim());
+                currentPart.setLength(0);
+            }
+            currentPart.append(sentence).append(" ");
+        }
+        if (!currentPart.isEmpty()) {
+            parts.add(currentPart.toString().trim());
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.bot;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.example.recipes.ApiGovernor;
+import org.example.recipes.ExternalApiException;
+import org.example.recipes.ResponseCache;
+import org.example.recipes.SpoonacularAPI;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfApiGovernor {
+
+    private static final ApiGovernor.ApiCall<String> FAILING = () -> {
+        throw new ExternalApiException("test", ExternalApiException.Reason.HTTP_ERROR, 503, "недоступен", null);
+    };
+
+    @Test
+    public void testCircuitOpensAndRecoversThroughProbe() throws Exception {
+        AtomicLong now = new AtomicLong(1_000);
+        ApiGovernor governor = new ApiGovernor("test", 2, 10_000, now::get);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ExternalApiException.class, () -> governor.execute(FAILING));
+        }
+        assertEquals(ApiGovernor.State.OPEN, governor.getState());
+
+        // пока предохранитель разомкнут, вызов даже не выполняется
+        AtomicInteger calls = new AtomicInteger();
+        ExternalApiException rejected = assertThrows(ExternalApiException.class,
+                () -> governor.execute(() -> String.valueOf(calls.incrementAndGet())));
+        assertEquals(ExternalApiException.Reason.CIRCUIT_OPEN, rejected.getReason());
+        assertTrue(rejected.isShed());
+        assertEquals(0, calls.get());
+
+        // неудачный пробный вызов снова размыкает предохранитель
+        now.addAndGet(10_000);
+        assertEquals(ApiGovernor.State.HALF_OPEN, governor.getState());
+        assertThrows(ExternalApiException.class, () -> governor.execute(FAILING));
+        assertEquals(ApiGovernor.State.OPEN, governor.getState());
+
+        now.addAndGet(10_000);
+        assertEquals("ok", governor.execute(() -> "ok"));
+        assertEquals(ApiGovernor.State.CLOSED, governor.getState());
+        assertEquals(1, governor.getRejectedCount());
+        assertEquals(2, governor.getCircuitOpenCount());
+    }
+
+    @Test
+    public void testClientErrorsDoNotOpenCircuit() {
+        ApiGovernor governor = new ApiGovernor("test", 1, 10_000);
+        assertThrows(ExternalApiException.class, () -> governor.execute(() -> {
+            throw new ExternalApiException("test", ExternalApiException.Reason.HTTP_ERROR, 404, "не найдено", null);
+        }));
+        assertEquals(ApiGovernor.State.CLOSED, governor.getState());
+        assertEquals(0, governor.getFailureCount());
+    }
+
+    @Test
+    public void testExhaustedQuotaBlocksUntilNextUtcDay() throws Exception {
+        AtomicLong now = new AtomicLong(java.time.Instant.parse("2024-05-01T22:30:00Z").toEpochMilli());
+        ApiGovernor governor = new ApiGovernor("test", 3, 10_000, now::get);
+
+        governor.updateQuota(0);
+        ExternalApiException rejected = assertThrows(ExternalApiException.class, () -> governor.execute(() -> "ok"));
+        assertEquals(ExternalApiException.Reason.QUOTA_EXHAUSTED, rejected.getReason());
+
+        now.set(java.time.Instant.parse("2024-05-02T00:00:01Z").toEpochMilli());
+        assertEquals("ok", governor.execute(() -> "ok"));
+        assertTrue(Double.isNaN(governor.getQuotaLeft()));
+    }
+
+    @Test
+    public void testSpoonacularServesStaleResponseWhenApiFails() throws Exception {
+        AtomicInteger status = new AtomicInteger(200);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(status.get())
+                        .message("fake")
+                        .header("X-API-Quota-Left", "42.5")
+                        .body(ResponseBody.create("{\"title\":\"Суп\"}", MediaType.get("application/json")))
+                        .build())
+                .build();
+        // TTL 1 мс: каждая запись сразу устаревает, но остается доступной как запасной ответ
+        SpoonacularAPI api = new SpoonacularAPI("token", new ResponseCache(10, 1, null, 0), client);
+
+        assertEquals("{\"title\":\"Суп\"}", api.getRecipeInformation(1));
+        assertEquals(42.5, api.getGovernor().getQuotaLeft(), 1e-9);
+        Thread.sleep(5);
+
+        status.set(500);
+        assertEquals("{\"title\":\"Суп\"}", api.getRecipeInformation(1));
+        assertEquals(1, api.getStaleResponseCount());
+
+        ExternalApiException error = assertThrows(ExternalApiException.class, () -> api.getRecipeInformation(2));
+        assertEquals(ExternalApiException.Reason.HTTP_ERROR, error.getReason());
+        assertEquals(500, error.getStatusCode());
+    }
+}
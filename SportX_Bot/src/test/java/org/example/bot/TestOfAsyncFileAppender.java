@@ -0,0 +1,78 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfAsyncFileAppender {
+
+    @TempDir
+    Path directory;
+
+    private AsyncFileAppender appender;
+
+    @AfterEach
+    public void tearDown() {
+        if (appender != null) {
+            appender.close();
+        }
+    }
+
+    @Test
+    public void testFlushMakesLinesVisible() throws IOException {
+        Path log = directory.resolve("bot.log");
+        appender = new AsyncFileAppender(log, 1024, AsyncFileAppender.OverflowPolicy.BLOCK, 10_000, 0, false);
+
+        for (int i = 0; i < 5000; i++) {
+            appender.append("строка " + i);
+        }
+        appender.flush();
+
+        List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+        assertEquals(5000, lines.size());
+        assertEquals("строка 4999", lines.get(4999));
+        assertEquals(0, appender.getDroppedCount());
+        assertTrue(appender.getFlushCount() > 0);
+    }
+
+    @Test
+    public void testRotatedFilesAreCompressed() throws IOException {
+        Path log = directory.resolve("bot.log");
+        appender = new AsyncFileAppender(log, 16, AsyncFileAppender.OverflowPolicy.BLOCK, 10, 100, false);
+
+        for (int i = 0; i < 20; i++) {
+            appender.append("0123456789012345678901234567890123456789");
+            appender.flush();
+        }
+        assertTrue(Files.size(log) < 200);
+        // сжатие идет в фоне; close дожидается его
+        appender.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> rolled = files.filter(file -> file.getFileName().toString().endsWith(".gz")).collect(Collectors.toList());
+            assertFalse(rolled.isEmpty(), "Переполненный файл должен быть сжат");
+        }
+        assertTrue(appender.getRotationCount() > 0);
+    }
+
+    @Test
+    public void testFailedWritesAreCountedAsDropped() {
+        // каталог вместо файла: открыть его на запись нельзя
+        appender = new AsyncFileAppender(directory, 16, AsyncFileAppender.OverflowPolicy.BLOCK, 10_000, 0, false);
+
+        appender.append("первая");
+        appender.append("вторая");
+        appender.flush();
+
+        assertTrue(appender.getWriteErrorCount() > 0);
+        assertEquals(2, appender.getDroppedCount());
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.bot;
+
+import com.google.gson.JsonObject;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.example.recipes.TranslateService;
+import org.example.recipes.TranslationMemory;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfBatchTranslation {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    // Вместо сети отвечает перехватчик, перевод задает функция
+    private OkHttpClient fakeClient(UnaryOperator<String> translator) {
+        return new OkHttpClient.Builder().addInterceptor(chain -> {
+            requests.incrementAndGet();
+            JsonObject responseData = new JsonObject();
+            responseData.addProperty("translatedText", translator.apply(chain.request().url().queryParameter("q")));
+            JsonObject body = new JsonObject();
+            body.add("responseData", responseData);
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(body.toString(), MediaType.get("application/json")))
+                    .build();
+        }).build();
+    }
+
+    @Test
+    public void testShortTextsArePackedAndDeduplicated() {
+        TranslateService translateService = new TranslateService(fakeClient(String::toUpperCase), new TranslationMemory(100, null, 0));
+
+        List<String> translated = translateService.translateFromEnglish(List.of("soup", "salad", "soup", "", "pie"));
+
+        assertEquals(List.of("SOUP", "SALAD", "SOUP", "", "PIE"), translated);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testCallerThreadServiceDoesNotUseSharedPool() {
+        Thread caller = Thread.currentThread();
+        TranslateService translateService = TranslateService.inCallerThread(fakeClient(text -> {
+            assertSame(caller, Thread.currentThread());
+            return text.toUpperCase();
+        }), new TranslationMemory(100, null, 0));
+
+        List<String> translated = translateService.translateFromEnglish(List.of("a".repeat(400), "b".repeat(400)));
+
+        assertEquals(List.of("A".repeat(400), "B".repeat(400)), translated);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testLongTextsAreSentSeparatelyInOrder() {
+        TranslateService translateService = new TranslateService(fakeClient(String::toUpperCase), new TranslationMemory(100, null, 0));
+        String first = "a".repeat(400);
+        String second = "b".repeat(400);
+
+        List<String> translated = translateService.translateFromEnglish(List.of(first, second, "title"));
+
+        assertEquals(List.of(first.toUpperCase(), second.toUpperCase(), "TITLE"), translated);
+        assertEquals(2, requests.get()); // "title" упаковывается вместе со второй строкой
+    }
+
+    @Test
+    public void testBrokenPackFallsBackToSingleRequests() {
+        // API склеивает строки пакета в одну
+        TranslateService translateService = new TranslateService(fakeClient(text -> text.replace("\n", " ").toUpperCase()),
+                new TranslationMemory(100, null, 0));
+
+        List<String> translated = translateService.translateFromEnglish(List.of("soup", "salad"));
+
+        assertEquals(List.of("SOUP", "SALAD"), translated);
+        assertEquals(3, requests.get());
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfCallbackRouter {
+
+    @Test
+    public void testExactAndIdRoutes() {
+        List<String> calls = new ArrayList<>();
+        CallbackRouter router = new CallbackRouter()
+                .on("edit_login", chatId -> calls.add("login:" + chatId))
+                .on("edit_age", chatId -> calls.add("age:" + chatId))
+                .onId("", (chatId, id) -> calls.add("course:" + id))
+                .onId("workout_", (chatId, id) -> calls.add("workout:" + id))
+                .onId("recipe_", (chatId, id) -> calls.add("recipe:" + id));
+
+        assertTrue(router.route(7L, "edit_login"));
+        assertTrue(router.route(7L, "workout_42"));
+        assertTrue(router.route(7L, "recipe_715538"));
+        assertTrue(router.route(7L, "3"));
+        assertEquals(List.of("login:7", "workout:42", "recipe:715538", "course:3"), calls);
+        assertEquals(5, router.size());
+    }
+
+    @Test
+    public void testMalformedDataIsNotRouted() {
+        CallbackRouter router = new CallbackRouter()
+                .on("edit_login", chatId -> fail("неожиданный вызов"))
+                .onId("workout_", (chatId, id) -> fail("неожиданный вызов"));
+
+        assertFalse(router.route(1L, "edit_"));
+        assertFalse(router.route(1L, "edit_login_extra"));
+        assertFalse(router.route(1L, "workout_"));
+        assertFalse(router.route(1L, "workout_12a"));
+        assertFalse(router.route(1L, "workout_99999999999"));
+        assertFalse(router.route(1L, "complete_5"));
+        assertFalse(router.route(1L, ""));
+    }
+
+    @Test
+    public void testTrieExactLookup() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("/start", "start");
+        trie.put("/stats", "stats");
+        trie.putWithId("/s", "prefix");
+
+        assertEquals("start", trie.get("/start"));
+        assertNull(trie.get("/st"));
+        assertNull(trie.get("/s12"));
+        assertEquals("prefix", trie.route("/s12").getValue());
+        assertEquals(12, trie.route("/s12").getId());
+        assertEquals(-1, trie.route("/start").getId());
+        assertNull(trie.route("/s12x"));
+        assertEquals(12, PrefixTrie.parseId("/s12", 2));
+        assertEquals(-1, PrefixTrie.parseId("/s", 2));
+    }
+}
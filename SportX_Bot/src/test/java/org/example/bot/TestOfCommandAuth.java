@@ -0,0 +1,96 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TestOfCommandAuth {
+
+    private static final long CHAT_ID = 4242L;
+    private static final String DENIED = "Ошибка. Зарегистрируйтесь или войдите в аккаунт.";
+
+    private DatabaseManager databaseManager;
+    private TelegramBot bot;
+
+    @BeforeEach
+    public void setUp() {
+        databaseManager = mock(DatabaseManager.class);
+        // обработчики команд замкнуты на исходный объект, поэтому база подменяется до создания spy
+        TelegramBot realBot = new TelegramBot();
+        realBot.setDatabaseManager(databaseManager);
+        bot = spy(realBot);
+        doNothing().when(bot).sendMsg(anyString(), anyString());
+    }
+
+    @Test
+    public void testPublicCommandsSkipAuthLookup() throws SQLException {
+        bot.handleUpdate(textUpdate("/help"));
+        bot.handleUpdate(textUpdate("/start"));
+        bot.handleUpdate(textUpdate("не команда"));
+
+        verify(databaseManager, never()).getAuthStatus(anyLong());
+        verify(databaseManager, never()).isUserLoggedIn(anyLong());
+    }
+
+    @Test
+    public void testProtectedCommandResolvesAuthOnce() throws SQLException {
+        when(databaseManager.getAuthStatus(CHAT_ID)).thenReturn(new AuthStatus(true, true));
+
+        bot.handleUpdate(textUpdate("/viewcourses"));
+
+        verify(databaseManager, times(1)).getAuthStatus(CHAT_ID);
+        verify(databaseManager).getCoursesAsString();
+        verify(bot, never()).sendMsg(String.valueOf(CHAT_ID), DENIED);
+    }
+
+    @Test
+    public void testProfileCommandsDoNotRecheckLogin() throws SQLException {
+        when(databaseManager.getAuthStatus(CHAT_ID)).thenReturn(new AuthStatus(true, true));
+        when(databaseManager.getUserProfileAsString(CHAT_ID)).thenReturn("профиль");
+
+        bot.handleUpdate(textUpdate("/viewprofile"));
+        bot.handleUpdate(textUpdate("/editprofile"));
+
+        verify(databaseManager, times(2)).getAuthStatus(CHAT_ID);
+        verify(databaseManager, never()).isUserLoggedIn(anyLong());
+        verify(databaseManager).getUserProfileAsString(CHAT_ID);
+        verify(databaseManager).setUserState(CHAT_ID, UserState.EDIT_PROFILE_LOGIN);
+    }
+
+    @Test
+    public void testProtectedCommandDeniedWithoutProfile() throws SQLException {
+        when(databaseManager.getAuthStatus(CHAT_ID)).thenReturn(new AuthStatus(true, false));
+
+        bot.handleUpdate(textUpdate("/viewcourses"));
+
+        verify(bot).sendMsg(String.valueOf(CHAT_ID), DENIED);
+        verify(databaseManager, never()).getCoursesAsString();
+    }
+
+    @Test
+    public void testRequirementsAreCheckedTogether() {
+        AuthStatus sessionOnly = new AuthStatus(true, false);
+
+        assertTrue(AuthRequirement.allSatisfied(EnumSet.noneOf(AuthRequirement.class), AuthStatus.ANONYMOUS));
+        assertTrue(AuthRequirement.allSatisfied(EnumSet.of(AuthRequirement.SESSION), sessionOnly));
+        assertFalse(AuthRequirement.allSatisfied(EnumSet.allOf(AuthRequirement.class), sessionOnly));
+    }
+
+    private static Update textUpdate(String text) {
+        Message message = mock(Message.class);
+        when(message.hasText()).thenReturn(true);
+        when(message.getText()).thenReturn(text);
+        when(message.getChatId()).thenReturn(CHAT_ID);
+        Update update = mock(Update.class);
+        when(update.hasMessage()).thenReturn(true);
+        when(update.getMessage()).thenReturn(message);
+        return update;
+    }
+}
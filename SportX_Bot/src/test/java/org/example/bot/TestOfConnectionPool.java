@@ -0,0 +1,98 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TestOfConnectionPool {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        created.set(0);
+        pool = new ConnectionPool(this::mockConnection, 2, 100, 30000, 0, 0);
+    }
+
+    private Connection mockConnection() throws SQLException {
+        created.incrementAndGet();
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        return connection;
+    }
+
+    @Test
+    public void testConnectionIsReused() throws SQLException {
+        // после возврата в пул соединение выдается повторно, без нового подключения
+        Connection first = pool.acquire();
+        first.close();
+        Connection second = pool.acquire();
+        second.close();
+
+        assertEquals(1, created.get());
+        assertEquals(1, pool.getStats().getIdle());
+        assertEquals(0, pool.getStats().getActive());
+    }
+
+    @Test
+    public void testPoolIsBounded() throws SQLException {
+        Connection first = pool.acquire();
+        Connection second = pool.acquire();
+
+        assertEquals(2, pool.getStats().getActive());
+        assertThrows(SQLTimeoutException.class, () -> pool.acquire());
+        assertEquals(1, pool.getStats().getTimeouts());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testStatementsAreClosedOnRelease() throws SQLException {
+        Connection connection = pool.acquire();
+        PreparedStatement statement = connection.prepareStatement("SELECT 1");
+        connection.close();
+
+        verify(statement).close();
+        assertTrue(connection.isClosed(), "Возвращенное соединение должно считаться закрытым");
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+    }
+
+    @Test
+    public void testQueryClosesResultSetAndSharesLease() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("a", "b");
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(true);
+        when(physical.prepareStatement(anyString())).thenReturn(statement);
+
+        DatabaseConnection dbConnection = new DatabaseConnection();
+        dbConnection.pool = new ConnectionPool(() -> physical, 1, 100, 30000, 0, 0);
+
+        // вложенный запрос внутри withConnection не должен ждать второго соединения из пула размером 1
+        List<String> rows = dbConnection.withConnection(connection ->
+                dbConnection.query("SELECT name FROM t", rs -> rs.getString(1)));
+
+        assertEquals(List.of("a", "b"), rows);
+        verify(resultSet).close();
+        verify(statement, atLeastOnce()).close();
+        assertEquals(0, dbConnection.getPoolStats().getActive());
+        assertEquals(1, dbConnection.getPoolStats().getAcquireCount());
+    }
+}
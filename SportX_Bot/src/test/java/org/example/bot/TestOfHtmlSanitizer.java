@@ -0,0 +1,70 @@
+package org.example.bot;
+
+import org.example.recipes.HtmlSanitizer;
+import org.example.recipes.RecipeParser;
+import org.example.recipes.SanitizedText;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfHtmlSanitizer {
+
+    @Test
+    public void testMatchesPreviousOutputForLists() {
+        String html = "<ol><li>Boil <b>tomatoes</b>.</li><li>Blend <i>them</i>.</li></ol>";
+        String legacy = html.replaceAll("<ol>", "\n").replaceAll("</ol>", "")
+                .replaceAll("<li>", "- ").replaceAll("</li>", "\n")
+                .replaceAll("<b>", "").replaceAll("</b>", "")
+                .replaceAll("<i>", "").replaceAll("</i>", "");
+
+        assertEquals(legacy, HtmlSanitizer.sanitize(html).getText());
+    }
+
+    @Test
+    public void testEntitiesAndNestedTags() {
+        SanitizedText text = HtmlSanitizer.sanitize("<p>Heat to 180&deg;C &amp; stir <span class=\"x\"><strong>well</strong></span>.</p>Salt &lt;1 tsp&#33; 5 &bogus; <br/>Done");
+
+        assertEquals("Heat to 180°C & stir well.\nSalt <1 tsp! 5 &bogus; \nDone", text.getText());
+        assertEquals(3, text.getSentenceCount());
+    }
+
+    @Test
+    public void testChunksRespectLimitAndSentences() {
+        String sentence = "Cut the onion into small pieces and fry it for five minutes. ";
+        SanitizedText text = HtmlSanitizer.sanitize(sentence.repeat(20) + "x".repeat(120));
+
+        List<String> chunks = text.chunks(100);
+
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.length() <= 100), chunks.toString());
+        assertEquals(sentence.strip(), chunks.get(0));
+        assertEquals(String.join(" ", chunks).replace(" ", ""), text.getText().replace(" ", ""));
+        assertEquals(List.of("Short one. Short two."), HtmlSanitizer.sanitize("Short one. Short two.").chunks(100));
+    }
+
+    @Test
+    public void testRecipeDetailsStayValidTelegramHtml() {
+        String response = "{\"title\":\"Mac & Cheese <Deluxe>\",\"instructions\":"
+                + "\"<ol><li>Add salt &amp; pepper.</li><li>Bake &lt; 5 min, then serve to <3 people.</li></ol>\"}";
+
+        String details = new RecipeParser().getRecipeDetails(response);
+
+        assertTrue(isValidTelegramText(details), details);
+        assertEquals("a &amp; b &lt;c&gt;", HtmlSanitizer.escapeHtml("a & b <c>"));
+        assertEquals("plain", HtmlSanitizer.escapeHtml("plain"));
+    }
+
+    // Текст без разметки: ни одного угла, а каждый & начинает одну из сущностей, которые понимает Telegram
+    private static boolean isValidTelegramText(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '<' || c == '>') {
+                return false;
+            }
+            if (c == '&' && !(text.startsWith("&amp;", i) || text.startsWith("&lt;", i)
+                    || text.startsWith("&gt;", i) || text.startsWith("&quot;", i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
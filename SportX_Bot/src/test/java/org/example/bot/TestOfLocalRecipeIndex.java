@@ -0,0 +1,70 @@
+package org.example.bot;
+
+import org.example.recipes.LocalRecipeIndex;
+import org.example.recipes.RecipeSearchResult;
+import org.example.recipes.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfLocalRecipeIndex {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRankedIntersection() {
+        LocalRecipeIndex index = new LocalRecipeIndex(null, 1, 10);
+        index.add(1, "Tomato Soup", List.of("tomatoes", "onion", "garlic", "salt"));
+        index.add(2, "Caprese", List.of("cherry tomatoes", "mozzarella cheese"));
+        index.add(3, "Chicken Parmesan", List.of("chicken breast", "tomato sauce", "parmesan cheese"));
+        index.add(4, "Grilled Chicken", List.of("chicken thighs", "salt"));
+
+        RecipeSearchResult result = index.search("Tomatoes, cheese");
+        // оба ингредиента есть во 2 и 3, у Caprese меньше прочих ингредиентов; суп - частичное совпадение
+        assertEquals(List.of(2, 3, 1), result.getIds());
+        assertEquals("Caprese", result.getTitles().get(0));
+
+        // составной ингредиент совпадает, только если в рецепте есть все его слова
+        assertEquals(List.of(3), index.search("parmesan cheese").getIds());
+    }
+
+    @Test
+    public void testFallsBackWhenCoverageIsLow() {
+        LocalRecipeIndex index = new LocalRecipeIndex(null, 2, 10);
+        index.add(1, "Tomato Soup", List.of("tomatoes", "onion"));
+        index.add(2, "Tomato Salad", List.of("tomato", "cucumber"));
+
+        assertNotNull(index.search("tomato"));
+        assertNull(index.search("tomato, onion")); // со всеми ингредиентами только один рецепт
+        assertNull(index.search("  ,  "));
+        assertEquals(1, index.getLocalSearchCount());
+        assertEquals(2, index.getFallbackCount());
+    }
+
+    @Test
+    public void testImportAndPersistence() throws Exception {
+        Path importFile = directory.resolve("recipes.json");
+        Files.writeString(importFile,
+                "{\"id\":10,\"title\":\"Pancakes\",\"extendedIngredients\":[{\"name\":\"eggs\",\"nameClean\":\"egg\"},{\"name\":\"flour\"}]}\n"
+                        + "{\"id\":11,\"title\":\"Omelette\",\"extendedIngredients\":[{\"name\":\"eggs\"},{\"name\":\"milk\"}],\"servings\":2}\n");
+        Path store = directory.resolve("index.dat");
+
+        try (LocalRecipeIndex index = new LocalRecipeIndex(store, 1, 10);
+             ResponseCache cache = new ResponseCache(10, 60_000, null, 0)) {
+            assertEquals(2, index.importFile(importFile));
+            cache.put(ResponseCache.recipeKey(12), "{\"id\":12,\"title\":\"French Toast\",\"extendedIngredients\":[{\"name\":\"bread\"},{\"name\":\"egg\"}]}");
+            cache.put(ResponseCache.searchKey("egg", "", ""), "{\"results\":[]}");
+            assertEquals(1, index.importCachedResponses(cache));
+            assertEquals(0, index.importCachedResponses(cache));
+        }
+
+        try (LocalRecipeIndex restored = new LocalRecipeIndex(store, 1, 10)) {
+            assertEquals(3, restored.size());
+            assertEquals(List.of(10, 11, 12), restored.search("egg").getIds());
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class TestOfLogsAndEditProfile {
     }
 
     private void clearLogFile() {
+        LoggerUtil.flush(); // записи прошлых тестов не должны дописаться после очистки
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(LoggerUtil.getLogFilePath()))) {
             writer.write("");
         } catch (IOException e) {
@@ -64,6 +65,7 @@ public class TestOfLogsAndEditProfile {
 
 
     private String readLogFile() {
+        LoggerUtil.flush(); // запись в лог асинхронная
         StringBuilder content = new StringBuilder();
         try (BufferedReader reader = new BufferedReader(new FileReader(LoggerUtil.getLogFilePath()))) {
             String line;
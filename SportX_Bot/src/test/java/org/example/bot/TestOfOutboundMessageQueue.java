@@ -0,0 +1,112 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TestOfOutboundMessageQueue {
+
+    private OutboundMessageQueue queue;
+
+    @AfterEach
+    public void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    private static SendMessage message(String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId("1");
+        message.setText(text);
+        return message;
+    }
+
+    @Test
+    public void testInteractiveMessagesGoFirst() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<Message> gate = new CompletableFuture<>();
+        queue = new OutboundMessageQueue(message -> {
+            order.add(message.getText());
+            return message.getText().equals("first") ? gate : CompletableFuture.completedFuture(new Message());
+        }, 1000, 1000, 1000, 100, 0);
+
+        // пока первое сообщение в чате 1 не доставлено, остальные в этом чате ждут
+        queue.submit(1L, message("first"), OutboundMessageQueue.Priority.INTERACTIVE);
+        Thread.sleep(100);
+        queue.submit(1L, message("bulk"), OutboundMessageQueue.Priority.BULK);
+        CompletableFuture<Message> last = queue.submit(1L, message("reply"), OutboundMessageQueue.Priority.INTERACTIVE);
+        assertEquals(1, queue.getQueueDepth(OutboundMessageQueue.Priority.BULK));
+        gate.complete(new Message());
+
+        last.get(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        assertEquals(List.of("first", "reply", "bulk"), order);
+        assertEquals(3, queue.getSentCount());
+    }
+
+    @Test
+    public void testPerChatRateLimit() throws Exception {
+        queue = new OutboundMessageQueue(message -> CompletableFuture.completedFuture(new Message()), 1000, 5, 1, 100, 0);
+
+        long started = System.nanoTime();
+        CompletableFuture<Message> last = null;
+        for (int i = 0; i < 3; i++) {
+            last = queue.submit(7L, message("m" + i), OutboundMessageQueue.Priority.INTERACTIVE);
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        // 3 сообщения при 5 в секунду и ведре на 1 токен - не меньше 400 мс
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(350));
+        assertTrue(queue.getChatThrottleCount() > 0);
+    }
+
+    @Test
+    public void testRetryAfterTooManyRequests() throws Exception {
+        ApiResponse<?> response = mock(ApiResponse.class);
+        when(response.getErrorCode()).thenReturn(429);
+        when(response.getErrorDescription()).thenReturn("Too Many Requests");
+        when(response.getParameters()).thenReturn(new ResponseParameters(null, 1));
+        AtomicInteger attempts = new AtomicInteger();
+        queue = new OutboundMessageQueue(message -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new TelegramApiRequestException("429", response))
+                : CompletableFuture.completedFuture(new Message()), 1000, 1000, 1000, 100, 3);
+
+        long started = System.nanoTime();
+        queue.submit(3L, message("hello"), OutboundMessageQueue.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, queue.getRetryCount());
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    @Test
+    public void testThrottledChatsDoNotDelayReadyChat() throws Exception {
+        queue = new OutboundMessageQueue(message -> CompletableFuture.completedFuture(new Message()), 100_000, 2, 1, 10_000, 0);
+
+        // у каждого из 500 чатов второе сообщение ждет лимита чата около 500 мс
+        List<CompletableFuture<Message>> throttled = new CopyOnWriteArrayList<>();
+        for (long chatId = 1; chatId <= 500; chatId++) {
+            queue.submit(chatId, message("first"), OutboundMessageQueue.Priority.BULK);
+            throttled.add(queue.submit(chatId, message("second"), OutboundMessageQueue.Priority.BULK));
+        }
+        long started = System.nanoTime();
+        queue.submit(1000L, message("reply"), OutboundMessageQueue.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(400));
+
+        CompletableFuture.allOf(throttled.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(1001, queue.getSentCount());
+        assertEquals(0, queue.getQueueDepth());
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TestOfPasswordContinuation {
+
+    private static final long CHAT_ID = 777L;
+
+    private TelegramBot bot;
+    private UserProfileManager userProfileManager;
+    private UpdateDispatcher dispatcher;
+    private StateHandler stateHandler;
+
+    @BeforeEach
+    public void setUp() {
+        bot = mock(TelegramBot.class);
+        userProfileManager = mock(UserProfileManager.class);
+        DatabaseConnection dbConnection = mock(DatabaseConnection.class);
+        when(dbConnection.getProperty(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+        // сила 10 без подбора: хеш заметно дольше, чем переход полосы к следующему обновлению
+        when(dbConnection.getProperty("password.targetHashMs", "250")).thenReturn("0");
+        dispatcher = new UpdateDispatcher(2, 10, 10, 1000);
+        when(bot.getUpdateDispatcher()).thenReturn(dispatcher);
+        stateHandler = new StateHandler(bot, userProfileManager, mock(SessionManager.class), mock(CourseManager.class),
+                dbConnection, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dispatcher.close();
+        stateHandler.getPasswordHasher().close();
+    }
+
+    @Test
+    public void testNextUpdateWaitsForPasswordContinuation() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        doAnswer(invocation -> events.add("пароль сохранен")).when(userProfileManager).updateUserPassword(anyLong(), anyString());
+        stateHandler.setUserState(CHAT_ID, UserState.EDIT_PROFILE_PASSWORD);
+
+        dispatcher.dispatch(CHAT_ID, () -> stateHandler.handleProfileCreationOrLogin(CHAT_ID, "new-password"));
+        Runnable nextUpdate = new Runnable() {
+            @Override
+            public void run() {
+                if (stateHandler.deferWhilePasswordPending(CHAT_ID, this)) {
+                    return;
+                }
+                events.add("следующее обновление, состояние " + stateHandler.getUserState(CHAT_ID));
+                done.countDown();
+            }
+        };
+        dispatcher.dispatch(CHAT_ID, nextUpdate);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("пароль сохранен", "следующее обновление, состояние null"), events);
+    }
+
+    @Test
+    public void testFullLaneAbandonsContinuationInsteadOfRunningInline() throws Exception {
+        stateHandler.setUserState(CHAT_ID, UserState.EDIT_PROFILE_PASSWORD);
+        dispatcher.close();
+
+        stateHandler.handleProfileCreationOrLogin(CHAT_ID, "new-password");
+        assertTrue(stateHandler.deferWhilePasswordPending(CHAT_ID, () -> fail("отложенное обновление не должно выполняться")));
+
+        verify(bot, timeout(10_000)).sendMsg(String.valueOf(CHAT_ID), "Сервер перегружен. Отправьте пароль еще раз через минуту.");
+        verify(userProfileManager, never()).updateUserPassword(anyLong(), anyString());
+        assertEquals(UserState.EDIT_PROFILE_PASSWORD, stateHandler.getUserState(CHAT_ID));
+        assertFalse(stateHandler.deferWhilePasswordPending(CHAT_ID, () -> { }));
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfPasswordHasher {
+
+    @Test
+    public void testEncodeAndMatchOffCallerThread() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(4, 2, 10)) {
+            String encoded = hasher.encode("secret").get(5, TimeUnit.SECONDS);
+
+            assertTrue(encoded.startsWith("$2a$04$"));
+            assertEquals(60, encoded.length());
+            assertTrue(hasher.matches("secret", encoded).get(5, TimeUnit.SECONDS));
+            assertFalse(hasher.matches("wrong", encoded).get(5, TimeUnit.SECONDS));
+            assertFalse(hasher.matches("secret", null).get(5, TimeUnit.SECONDS));
+            assertEquals(4, hasher.getCompletedCount());
+            assertTrue(hasher.getAverageHashMillis() > 0);
+        }
+    }
+
+    @Test
+    public void testPrefixedAndWeakerHashesNeedUpgrade() throws Exception {
+        String prefixed = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+        try (PasswordHasher weak = new PasswordHasher(4, 1, 10);
+             PasswordHasher strong = new PasswordHasher(5, 1, 10)) {
+            // хеш с префиксом предыдущей версии по-прежнему проверяется, но переписывается без него
+            assertTrue(weak.matches("secret", prefixed).get(5, TimeUnit.SECONDS));
+            assertTrue(weak.needsUpgrade(prefixed));
+
+            String current = weak.encode("secret").get(5, TimeUnit.SECONDS);
+            assertFalse(weak.needsUpgrade(current));
+            assertTrue(strong.needsUpgrade(current));
+            assertFalse(strong.needsUpgrade(strong.encode("secret").get(5, TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    public void testOverflowIsShed() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(12, 1, 1)) {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(hasher.encode("password" + i));
+            }
+
+            // один хеш выполняется, один ждет в очереди, остальные отклонены сразу
+            assertEquals(3, hasher.getRejectedCount());
+            ExecutionException error = assertThrows(ExecutionException.class, () -> results.get(4).get());
+            assertInstanceOf(RejectedExecutionException.class, error.getCause());
+            assertNotNull(results.get(1).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testCalibrationRespectsMinimumStrength() {
+        assertEquals(4, PasswordHasher.calibrate(0, 4));
+        assertTrue(PasswordHasher.calibrate(10_000, 4) > 4);
+    }
+
+    @Test
+    public void testCalibratedStrengthDoesNotUpgradeStoredHashes() throws Exception {
+        String stored = new BCryptPasswordEncoder(4).encode("secret");
+        try (PasswordHasher calibrated = PasswordHasher.create(null, 10_000, 4, 1, 10);
+             PasswordHasher pinned = PasswordHasher.create(5, 10_000, 4, 1, 10)) {
+            assertFalse(calibrated.isUpgradingExisting());
+            assertFalse(calibrated.needsUpgrade("{bcrypt}" + stored));
+
+            assertEquals(5, pinned.getStrength());
+            assertTrue(pinned.needsUpgrade("{bcrypt}" + stored));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.bot;
+
+import org.example.recipes.RecipePrefetcher;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfRecipePrefetcher {
+
+    @Test
+    public void testHitsAndWastedFetches() throws Exception {
+        Set<Integer> loaded = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(2);
+        try (RecipePrefetcher prefetcher = new RecipePrefetcher(2, 2, 10)) {
+            prefetcher.prefetch(1L, List.of(10, 20, 30, 40), recipeId -> {
+                loaded.add(recipeId);
+                done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            waitForCompleted(prefetcher, 2);
+
+            assertEquals(Set.of(10, 20), loaded);
+            prefetcher.recordSelection(1L, 20);
+            prefetcher.recordSelection(1L, 30); // не входил в topK
+            prefetcher.cancel(1L);
+
+            assertEquals(1, prefetcher.getHitCount());
+            assertEquals(1, prefetcher.getMissCount());
+            assertEquals(1, prefetcher.getWastedCount());
+        }
+    }
+
+    @Test
+    public void testCancelSkipsQueuedFetches() throws Exception {
+        Set<Integer> loaded = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (RecipePrefetcher prefetcher = new RecipePrefetcher(3, 1, 10)) {
+            prefetcher.prefetch(1L, List.of(10, 20, 30), recipeId -> {
+                loaded.add(recipeId);
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            prefetcher.cancel(1L);
+            release.countDown();
+            waitForCompleted(prefetcher, 1);
+
+            assertEquals(Set.of(10), loaded);
+            assertEquals(2, prefetcher.getCancelledCount());
+            assertEquals(1, prefetcher.getWastedCount()); // загрузка завершилась уже после отмены
+        }
+    }
+
+    @Test
+    public void testFailedFetchIsNotCountedAsHit() throws Exception {
+        try (RecipePrefetcher prefetcher = new RecipePrefetcher(1, 1, 10)) {
+            prefetcher.prefetch(1L, List.of(10), recipeId -> {
+                throw new IllegalStateException("сервис недоступен");
+            });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (prefetcher.getFailedCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(1, prefetcher.getFailedCount());
+            assertEquals(0, prefetcher.getCompletedCount());
+            prefetcher.recordSelection(1L, 10);
+            assertEquals(0, prefetcher.getHitCount());
+            assertEquals(1, prefetcher.getMissCount());
+        }
+    }
+
+    @Test
+    public void testDisabledPrefetcherDoesNothing() {
+        try (RecipePrefetcher prefetcher = RecipePrefetcher.disabled()) {
+            prefetcher.prefetch(1L, List.of(10), recipeId -> fail("загрузка не должна выполняться"));
+            prefetcher.recordSelection(1L, 10);
+            assertFalse(prefetcher.isEnabled());
+            assertEquals(0, prefetcher.getScheduledCount());
+            assertEquals(0, prefetcher.getMissCount());
+        }
+    }
+
+    private static void waitForCompleted(RecipePrefetcher prefetcher, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (prefetcher.getCompletedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, prefetcher.getCompletedCount());
+    }
+}
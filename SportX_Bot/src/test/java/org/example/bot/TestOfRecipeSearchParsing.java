@@ -0,0 +1,31 @@
+package org.example.bot;
+
+import org.example.recipes.RecipeParser;
+import org.example.recipes.RecipeSearchResult;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfRecipeSearchParsing {
+
+    private final RecipeParser parser = new RecipeParser();
+
+    @Test
+    public void testIdsAndTitlesInOnePass() {
+        String response = "{\"offset\":0,\"results\":[" +
+                "{\"id\":123,\"title\":\"Tomato Soup\",\"image\":\"a.jpg\",\"nutrition\":{\"nutrients\":[{\"name\":\"id\",\"amount\":1}]}}," +
+                "{\"title\":\"Cheese Sandwich\",\"tags\":[[1,2],{\"id\":5}],\"id\":124}]," +
+                "\"totalResults\":2}";
+
+        RecipeSearchResult result = parser.parseSearchResult(response);
+
+        assertEquals(List.of(123, 124), result.getIds());
+        assertEquals(List.of("Tomato Soup", "Cheese Sandwich"), result.getTitles());
+    }
+
+    @Test
+    public void testErrorResponseGivesEmptyResult() {
+        assertTrue(parser.parseSearchResult("Ошибка: API вернул код 402").isEmpty());
+        assertTrue(parser.parseSearchResult("{\"status\":\"failure\",\"code\":402}").isEmpty());
+    }
+}
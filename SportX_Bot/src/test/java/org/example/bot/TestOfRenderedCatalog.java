@@ -0,0 +1,43 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfRenderedCatalog {
+
+    private RenderedCatalog rendered;
+
+    @BeforeEach
+    public void setUp() {
+        CourseCatalog catalog = new CourseCatalog(1, "fingerprint",
+                List.of(new Course(1, "Сила", "Базовая программа"), new Course(2, "Кардио", "Выносливость")),
+                Map.of(1, List.of(new Workout(10, "День 1", "Ноги")), 2, List.of()),
+                Map.of(10, List.of(new Exercise(100, "Присед", 12, 3), new Exercise(101, "Выпады", 10, 4))));
+        rendered = new RenderedCatalog(catalog);
+    }
+
+    @Test
+    public void testHtmlMatchesPreviousFormat() {
+        String expectedCourses = String.format("<b>%s</b>\n<b>Описание:</b> <i>%s</i>\n\n", "Сила", "Базовая программа")
+                + String.format("<b>%s</b>\n<b>Описание:</b> <i>%s</i>\n\n", "Кардио", "Выносливость");
+        String expectedExercises = String.format("<b>%s</b>\n<b>Повторения:</b> %d, <b>Подходы:</b> %d\n\n", "Присед", 12, 3)
+                + String.format("<b>%s</b>\n<b>Повторения:</b> %d, <b>Подходы:</b> %d\n\n", "Выпады", 10, 4);
+
+        assertEquals(expectedCourses, rendered.getCoursesHtml());
+        assertEquals(expectedExercises, rendered.getExercisesHtml(10));
+        assertEquals("", rendered.getExercisesHtml(999));
+        assertEquals("", rendered.getWorkoutsHtml(2));
+    }
+
+    @Test
+    public void testKeyboardsAreBuiltOnce() {
+        assertSame(rendered.getCourseSelectionKeyboard(), rendered.getCourseSelectionKeyboard());
+        assertSame(rendered.getCompleteWorkoutKeyboard(10), rendered.getCompleteWorkoutKeyboard(10));
+        assertEquals("complete_10", rendered.getCompleteWorkoutKeyboard(10).getKeyboard().get(0).get(0).getCallbackData());
+        assertThrows(UnsupportedOperationException.class,
+                () -> rendered.getCourseSelectionKeyboard().getKeyboard().add(List.of()));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.bot;
+
+import org.example.recipes.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfResponseCache {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSearchKeyIsNormalized() {
+        assertEquals(ResponseCache.searchKey("Tomatoes, cheese ,chicken", "", ""),
+                ResponseCache.searchKey("chicken,  CHEESE, tomatoes, cheese", "", ""));
+        assertNotEquals(ResponseCache.searchKey("tomatoes", "vegan", ""), ResponseCache.searchKey("tomatoes", "", ""));
+    }
+
+    @Test
+    public void testLruEvictionAndMetrics() {
+        ResponseCache cache = new ResponseCache(2, 60_000, null, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3"); // вытесняется "b" как давно не использованный
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals(2, cache.getMemorySize());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testEntriesSurviveRestart() {
+        Path file = directory.resolve("cache.dat");
+        try (ResponseCache cache = new ResponseCache(10, 60_000, file, 0)) {
+            cache.put(ResponseCache.recipeKey(123), "{\"title\":\"Томатный суп\"}");
+            cache.put(ResponseCache.recipeKey(124), "old");
+            cache.put(ResponseCache.recipeKey(124), "new");
+        }
+
+        try (ResponseCache restarted = new ResponseCache(10, 60_000, file, 0)) {
+            assertEquals("{\"title\":\"Томатный суп\"}", restarted.get(ResponseCache.recipeKey(123)));
+            assertEquals("new", restarted.get(ResponseCache.recipeKey(124)));
+            assertEquals(2, restarted.getDiskHitCount());
+            assertEquals(2, restarted.getDiskSize());
+        }
+    }
+
+    @Test
+    public void testDiskFileIsCompacted() {
+        Path file = directory.resolve("cache.dat");
+        try (ResponseCache cache = new ResponseCache(10, 60_000, file, 4096)) {
+            for (int i = 0; i < 200; i++) {
+                cache.put("key" + (i % 5), "значение " + i);
+            }
+            assertTrue(cache.getDiskBytes() <= 4096);
+            assertEquals(5, cache.getDiskSize());
+        }
+        try (ResponseCache restarted = new ResponseCache(10, 60_000, file, 4096)) {
+            assertEquals("значение 199", restarted.get("key4"));
+        }
+    }
+
+    @Test
+    public void testDiskHitKeepsOriginalExpiry() throws InterruptedException {
+        Path file = directory.resolve("cache.dat");
+        try (ResponseCache cache = new ResponseCache(10, 300, file, 0)) {
+            cache.put("key", "value");
+        }
+        Thread.sleep(200);
+
+        try (ResponseCache restarted = new ResponseCache(10, 300, file, 0)) {
+            assertEquals("value", restarted.get("key"));
+            Thread.sleep(150);
+            // срок отсчитывается от записи на диск, а не от подъема в память
+            assertNull(restarted.get("key"));
+        }
+    }
+
+    @Test
+    public void testStaleEntryIsServedFromDiskAfterRestart() throws InterruptedException {
+        Path file = directory.resolve("cache.dat");
+        try (ResponseCache cache = new ResponseCache(10, 50, file, 0)) {
+            cache.put("key", "value");
+        }
+        Thread.sleep(100);
+
+        try (ResponseCache restarted = new ResponseCache(10, 50, file, 0)) {
+            assertNull(restarted.get("key"));
+            assertEquals("value", restarted.getStale("key"));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TestOfSessionCache {
+
+    private DatabaseConnection dbConnection;
+
+    @BeforeEach
+    public void setUp() {
+        dbConnection = mock(DatabaseConnection.class);
+    }
+
+    @Test
+    public void testAuthenticatedStatusIsCached() throws SQLException {
+        when(dbConnection.queryFirst(anyString(), any(), any(), any(), any())).thenReturn(new AuthStatus(true, true));
+        SessionManager sessionManager = new SessionManager(dbConnection);
+
+        assertTrue(sessionManager.getAuthStatus(1L).isAuthenticated());
+        assertTrue(sessionManager.isSessionActive(1L));
+
+        // второй запрос обслуживается из кэша
+        verify(dbConnection, times(1)).queryFirst(anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCreateSessionAndLogoutAreWrittenThrough() throws SQLException {
+        when(dbConnection.queryFirst(anyString(), any(), any(), any(), any())).thenReturn(AuthStatus.ANONYMOUS);
+        SessionManager sessionManager = new SessionManager(dbConnection, 60_000);
+
+        assertFalse(sessionManager.isSessionActive(5L));
+        sessionManager.createSession(5L, 5L);
+        assertTrue(sessionManager.getAuthStatus(5L).isAuthenticated());
+
+        sessionManager.logoutUser(5L);
+        AuthStatus status = sessionManager.getAuthStatus(5L);
+        assertFalse(status.isSessionActive());
+        assertTrue(status.isProfileExists());
+
+        verify(dbConnection, times(1)).queryFirst(anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testNegativeResultsAreNotCachedByDefault() throws SQLException {
+        when(dbConnection.queryFirst(anyString(), any(), any(), any(), any())).thenReturn(AuthStatus.ANONYMOUS);
+        SessionManager sessionManager = new SessionManager(dbConnection);
+
+        assertFalse(sessionManager.isSessionActive(7L));
+        assertFalse(sessionManager.isSessionActive(7L));
+
+        verify(dbConnection, times(2)).queryFirst(anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testAuthenticatedStatusExpiresAndIsReloaded() throws SQLException {
+        when(dbConnection.queryFirst(anyString(), any(), any(), any(), any()))
+                .thenReturn(new AuthStatus(true, true), AuthStatus.ANONYMOUS);
+        AtomicLong now = new AtomicLong(1_000);
+        SessionManager sessionManager = new SessionManager(dbConnection, 0, 60_000, 100, now::get);
+
+        assertTrue(sessionManager.isSessionActive(3L));
+        now.addAndGet(59_999);
+        assertTrue(sessionManager.isSessionActive(3L));
+
+        // сессию удалили в обход этого процесса - после истечения срока это видно
+        now.addAndGet(1);
+        assertFalse(sessionManager.isSessionActive(3L));
+        verify(dbConnection, times(2)).queryFirst(anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCacheIsBoundedByMaxEntries() throws SQLException {
+        when(dbConnection.queryFirst(anyString(), any(), any(), any(), any())).thenReturn(new AuthStatus(true, true));
+        SessionManager sessionManager = new SessionManager(dbConnection, 0, 60_000, 2);
+
+        sessionManager.getAuthStatus(1L);
+        sessionManager.getAuthStatus(2L);
+        sessionManager.getAuthStatus(1L);
+        sessionManager.getAuthStatus(3L);
+
+        assertEquals(2, sessionManager.getCachedSessionCount());
+        // вытеснен давно не использованный чат 2, чат 1 остался в кэше
+        sessionManager.getAuthStatus(1L);
+        verify(dbConnection, times(3)).queryFirst(anyString(), any(), any(), any(), any());
+        sessionManager.getAuthStatus(2L);
+        verify(dbConnection, times(4)).queryFirst(anyString(), any(), any(), any(), any());
+    }
+}
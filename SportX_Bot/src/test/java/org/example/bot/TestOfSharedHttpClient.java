@@ -0,0 +1,60 @@
+package org.example.bot;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.example.recipes.SharedHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfSharedHttpClient {
+
+    private HttpServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/recipes", exchange -> {
+            byte[] body = "{\"results\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws IOException {
+        SharedHttpClient sharedClient = new SharedHttpClient(new Properties());
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/recipes";
+
+        for (int i = 0; i < 3; i++) {
+            try (Response response = sharedClient.getClient().newCall(new Request.Builder().url(url).build()).execute()) {
+                assertEquals("{\"results\":[]}", response.body().string());
+            }
+        }
+
+        assertEquals(3, sharedClient.getCallCount());
+        assertEquals(1, sharedClient.getConnectionsOpened());
+        assertEquals(2, sharedClient.getConnectionReuseCount());
+        assertEquals(0, sharedClient.getFailedCallCount());
+    }
+
+    @Test
+    public void testSharedInstanceIsSingle() {
+        assertSame(SharedHttpClient.get(), SharedHttpClient.get());
+    }
+}
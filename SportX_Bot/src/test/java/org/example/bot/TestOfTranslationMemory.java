@@ -0,0 +1,78 @@
+package org.example.bot;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.example.recipes.TranslateService;
+import org.example.recipes.TranslationMemory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfTranslationMemory {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    // Вместо сети отвечает перехватчик: перевод - исходный текст в верхнем регистре
+    private OkHttpClient fakeClient() {
+        return new OkHttpClient.Builder().addInterceptor(chain -> {
+            requests.incrementAndGet();
+            String text = chain.request().url().queryParameter("q");
+            String body = "{\"responseData\":{\"translatedText\":\"" + text.toUpperCase() + "\"}}";
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(body, MediaType.get("application/json")))
+                    .build();
+        }).build();
+    }
+
+    @Test
+    public void testRepeatedTextIsTranslatedOnce() throws InterruptedException {
+        TranslationMemory memory = new TranslationMemory(100, directory.resolve("memory.dat"), 0);
+        memory.awaitDiskLoaded(5000);
+        TranslateService translateService = new TranslateService(fakeClient(), memory);
+
+        assertEquals("TOMATO SOUP", translateService.translateFromEnglish("tomato soup"));
+        assertEquals("TOMATO SOUP", translateService.translateFromEnglish("tomato soup"));
+        assertEquals("ТОМАТ", translateService.translateToEnglish("томат"));
+
+        assertEquals(2, requests.get());
+        assertEquals(1, memory.getMemoryHitCount());
+        memory.close();
+    }
+
+    @Test
+    public void testDirectionIsPartOfKey() throws InterruptedException {
+        TranslationMemory memory = new TranslationMemory(100, null, 0);
+        memory.put("en", "ru", "soup", "суп");
+
+        assertEquals("суп", memory.get("en", "ru", "soup"));
+        assertNull(memory.get("ru", "en", "soup"));
+        assertTrue(memory.awaitDiskLoaded(0));
+    }
+
+    @Test
+    public void testTranslationsSurviveRestart() throws InterruptedException {
+        Path file = directory.resolve("memory.dat");
+        TranslationMemory memory = new TranslationMemory(100, file, 0);
+        memory.put("en", "ru", "cheese", "сыр"); // может попасть в очередь до загрузки файла
+        memory.awaitDiskLoaded(5000);
+        memory.close();
+
+        TranslationMemory restarted = new TranslationMemory(100, file, 0);
+        assertTrue(restarted.awaitDiskLoaded(5000));
+        assertEquals("сыр", restarted.get("en", "ru", "cheese"));
+        assertEquals(1, restarted.getDiskHitCount());
+        restarted.close();
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfUpdateDispatcher {
+
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    public void testOrderWithinChatIsPreserved() throws InterruptedException {
+        dispatcher = new UpdateDispatcher(4, 100, 100, 1000);
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            int number = i;
+            assertTrue(dispatcher.dispatch(42L, () -> {
+                processed.add(number);
+                done.countDown();
+            }));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, processed.get(i));
+        }
+    }
+
+    @Test
+    public void testSlowChatDoesNotBlockOtherChats() throws InterruptedException {
+        dispatcher = new UpdateDispatcher(4, 100, 100, 1000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherChatDone = new CountDownLatch(1);
+
+        // ищем чат, который попадает в другую полосу, чем "медленный" чат 1
+        long otherChat = 2;
+        dispatcher.dispatch(1L, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (sameLane(1L, otherChat)) {
+            otherChat++;
+        }
+        dispatcher.dispatch(otherChat, otherChatDone::countDown);
+
+        assertTrue(otherChatDone.await(5, TimeUnit.SECONDS), "Медленный чат не должен блокировать другие");
+        release.countDown();
+    }
+
+    @Test
+    public void testInFlightLimitRejectsOverflow() throws InterruptedException {
+        dispatcher = new UpdateDispatcher(1, 10, 2, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        assertTrue(dispatcher.tryDispatch(1L, blocking, 50));
+        assertTrue(dispatcher.tryDispatch(1L, blocking, 50));
+        assertFalse(dispatcher.tryDispatch(1L, blocking, 50));
+        assertEquals(1, dispatcher.getRejectedCount());
+        release.countDown();
+    }
+
+    @Test
+    public void testDispatchWaitsForCapacityInsteadOfDropping() throws InterruptedException {
+        dispatcher = new UpdateDispatcher(1, 10, 1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+        assertTrue(dispatcher.dispatch(1L, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        // место освобождается только после нескольких интервалов ожидания - обновление все равно принимается
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        assertTrue(dispatcher.dispatch(1L, secondDone::countDown));
+
+        assertTrue(secondDone.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.getStallCount() > 0);
+        assertEquals(0, dispatcher.getRejectedCount());
+    }
+
+    @Test
+    public void testOfferDoesNotWaitForCapacity() {
+        // даже большой таймаут dispatch не задерживает offer при заполненной очереди
+        dispatcher = new UpdateDispatcher(1, 10, 1, 10_000);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(dispatcher.offer(1L, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        long start = System.nanoTime();
+        assertFalse(dispatcher.offer(1L, () -> { }));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, dispatcher.getRejectedCount());
+        release.countDown();
+    }
+
+    private boolean sameLane(long first, long second) {
+        int a = Long.hashCode(first) ^ (Long.hashCode(first) >>> 16);
+        int b = Long.hashCode(second) ^ (Long.hashCode(second) >>> 16);
+        return Math.floorMod(a, dispatcher.getLaneCount()) == Math.floorMod(b, dispatcher.getLaneCount());
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfUserStateStore {
+
+    private final AtomicLong time = new AtomicLong(1_000_000L);
+    private final List<Long> evicted = new ArrayList<>();
+    private UserStateStore store;
+
+    @BeforeEach
+    public void setUp() {
+        evicted.clear();
+        store = new UserStateStore(60_000, 1000, evicted::add, time::get);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        store.put(1L, UserState.LOGIN_LOGIN);
+        store.put(2L, UserState.ENTER_AGE);
+        store.put(1L, UserState.LOGIN_PASSWORD);
+
+        assertEquals(UserState.LOGIN_PASSWORD, store.get(1L));
+        assertEquals(UserState.ENTER_AGE, store.get(2L));
+        assertEquals(2, store.size());
+
+        assertEquals(UserState.ENTER_AGE, store.remove(2L));
+        assertNull(store.get(2L));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testIdleEntriesExpire() {
+        store.put(1L, UserState.CREATE_PROFILE_LOGIN);
+        store.put(2L, UserState.LOGIN_LOGIN);
+
+        time.addAndGet(40_000);
+        assertEquals(UserState.LOGIN_LOGIN, store.get(2L)); // обращение продлевает жизнь записи
+
+        time.addAndGet(30_000);
+        assertNull(store.get(1L));
+        assertEquals(UserState.LOGIN_LOGIN, store.get(2L));
+        assertTrue(evicted.contains(1L), "Слушатель должен получить вытесненного пользователя");
+        assertEquals(1, store.getExpiredEvictionCount());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        for (long userId = 0; userId < 10_000; userId++) {
+            store.put(userId, UserState.ENTER_INGREDIENTS);
+            time.incrementAndGet();
+        }
+
+        assertTrue(store.size() <= 1008, "Размер должен быть ограничен: " + store.size());
+        assertEquals(10_000 - store.size(), store.getSizeEvictionCount());
+        assertTrue(store.estimateMemoryBytes() > 0);
+    }
+
+    @Test
+    public void testManyKeysSurviveRemovals() {
+        for (long userId = 0; userId < 900; userId++) {
+            store.put(userId * 31, UserState.values()[(int) (userId % UserState.values().length)]);
+        }
+        for (long userId = 0; userId < 900; userId += 2) {
+            store.remove(userId * 31);
+        }
+        for (long userId = 0; userId < 900; userId++) {
+            UserState expected = userId % 2 == 0 ? null : UserState.values()[(int) (userId % UserState.values().length)];
+            assertEquals(expected, store.get(userId * 31));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfVerifiedLoginCache {
+
+    @Test
+    public void testEntryIsBoundToChatPasswordAndStoredHash() {
+        VerifiedLoginCache cache = new VerifiedLoginCache(60_000, 100);
+        cache.recordVerified(1L, "steve", "secret", "hash-1");
+
+        assertTrue(cache.isVerified(1L, "steve", "secret", "hash-1"));
+        assertFalse(cache.isVerified(2L, "steve", "secret", "hash-1"));
+        assertFalse(cache.isVerified(1L, "steve", "Secret", "hash-1"));
+        // пароль сменили - в базе другой хеш, запись больше не действует
+        assertFalse(cache.isVerified(1L, "steve", "secret", "hash-2"));
+        assertFalse(cache.isVerified(1L, "steve", "secret", "hash-1"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testEntriesExpireAndAreBounded() {
+        AtomicLong now = new AtomicLong(0);
+        VerifiedLoginCache cache = new VerifiedLoginCache(1_000, 2, now::get);
+        cache.recordVerified(1L, "a", "p", "h");
+        cache.recordVerified(2L, "b", "p", "h");
+        cache.recordVerified(3L, "c", "p", "h");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertFalse(cache.isVerified(1L, "a", "p", "h"));
+        assertTrue(cache.isVerified(3L, "c", "p", "h"));
+
+        now.set(1_000);
+        assertFalse(cache.isVerified(3L, "c", "p", "h"));
+    }
+
+    @Test
+    public void testZeroTtlDisablesCache() {
+        VerifiedLoginCache cache = new VerifiedLoginCache(0, 100);
+        cache.recordVerified(1L, "steve", "secret", "hash");
+        assertFalse(cache.isVerified(1L, "steve", "secret", "hash"));
+        assertEquals(0, cache.size());
+    }
+}
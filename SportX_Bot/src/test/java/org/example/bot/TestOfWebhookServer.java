@@ -0,0 +1,122 @@
+package org.example.bot;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOfWebhookServer {
+
+    private static final String SECRET = "test-secret_42";
+
+    private final List<Update> received = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean accepting = new AtomicBoolean(true);
+    private final OkHttpClient client = new OkHttpClient();
+    private WebhookServer server;
+    private String url;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new WebhookServer(new InetSocketAddress("127.0.0.1", 0), "/telegram", SECRET, 2, 10, update -> {
+            if (!accepting.get()) {
+                return false;
+            }
+            received.add(update);
+            return true;
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/telegram";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testReplayedUpdatesReachDispatcher() throws IOException {
+        WebhookReplayClient.Result result = new WebhookReplayClient(client, url, SECRET)
+                .replay(List.of(textUpdate(1, 100L, "/start"), textUpdate(2, 100L, "/help")));
+
+        assertEquals(2, result.getCount(200));
+        assertEquals(2, received.size());
+        assertEquals("/help", received.get(1).getMessage().getText());
+        assertEquals(100L, received.get(0).getMessage().getChatId());
+    }
+
+    @Test
+    public void testWrongSecretAndMalformedBodyAreRejected() throws IOException {
+        WebhookReplayClient.Result wrongSecret = new WebhookReplayClient(client, url, "other")
+                .replay(List.of(textUpdate(1, 100L, "/start")));
+        WebhookReplayClient.Result malformed = new WebhookReplayClient(client, url, SECRET)
+                .replay(List.of("{\"update_id\": ", "null"));
+
+        assertEquals(1, wrongSecret.getCount(401));
+        assertEquals(2, malformed.getCount(400));
+        assertTrue(received.isEmpty());
+        assertEquals(1, server.getUnauthorizedCount());
+        assertEquals(2, server.getMalformedCount());
+        assertEquals(0, server.getOverloadedCount());
+    }
+
+    @Test
+    public void testOverloadAsksTelegramToRetry() throws IOException {
+        accepting.set(false);
+        WebhookReplayClient.Result result = new WebhookReplayClient(client, url, SECRET)
+                .replay(List.of(textUpdate(1, 100L, "/start")));
+
+        assertEquals(1, result.getCount(503));
+        assertEquals(1, server.getOverloadedCount());
+
+        Request get = new Request.Builder().url(url).header(WebhookServer.SECRET_HEADER, SECRET).get().build();
+        try (Response response = client.newCall(get).execute()) {
+            assertEquals(404, response.code());
+        }
+        Request otherPath = new Request.Builder().url(url + "/other").header(WebhookServer.SECRET_HEADER, SECRET)
+                .post(RequestBody.create(textUpdate(3, 100L, "/start"), MediaType.get("application/json"))).build();
+        try (Response response = client.newCall(otherPath).execute()) {
+            assertEquals(404, response.code());
+        }
+    }
+
+    @Test
+    public void testReplayFileFormats(@TempDir Path dir) throws IOException {
+        Path lines = Files.writeString(dir.resolve("updates.jsonl"),
+                textUpdate(1, 1L, "/start") + "\n\n" + textUpdate(2, 1L, "/help") + "\n");
+        Path array = Files.writeString(dir.resolve("updates.json"),
+                "[" + textUpdate(1, 1L, "/start") + ", " + textUpdate(2, 1L, "/help") + "]");
+
+        assertEquals(2, WebhookReplayClient.readUpdates(lines).size());
+        List<String> fromArray = WebhookReplayClient.readUpdates(array);
+        assertEquals(2, fromArray.size());
+        assertTrue(fromArray.get(1).contains("/help"));
+    }
+
+    @Test
+    public void testInvalidSecretConfigurationFailsFast() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new WebhookServer(new InetSocketAddress("127.0.0.1", 0), "/telegram", null, 1, 1, update -> true));
+        assertThrows(IllegalArgumentException.class, () ->
+                new WebhookServer(new InetSocketAddress("127.0.0.1", 0), "/telegram", "с пробелом", 1, 1, update -> true));
+    }
+
+    private static String textUpdate(int updateId, long chatId, String text) {
+        return "{\"update_id\":" + updateId + ",\"message\":{\"message_id\":" + updateId + ",\"date\":1700000000,"
+                + "\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"},\"text\":\"" + text + "\"}}";
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class TestOfWorkoutProgress {
+
+    private DatabaseConnection dbConnection;
+    private CourseManager courseManager;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        dbConnection = mock(DatabaseConnection.class);
+        when(dbConnection.withConnection(any())).thenAnswer(invocation ->
+                invocation.<DatabaseConnection.ConnectionCallback<?>>getArgument(0).execute(null));
+        when(dbConnection.queryFirst(anyString(), any(), any())).thenReturn("fingerprint");
+
+        // справочник: программа 1 с тренировками 10, 11, 12
+        doAnswer(invocation -> {
+            DatabaseConnection.RowCallback callback = invocation.getArgument(1);
+            for (int workoutId = 10; workoutId <= 12; workoutId++) {
+                ResultSet row = mock(ResultSet.class);
+                when(row.getInt("course_id")).thenReturn(1);
+                when(row.getString("course_name")).thenReturn("Сила");
+                when(row.getInt("workout_id")).thenReturn(workoutId);
+                when(row.getString("workout_name")).thenReturn("День " + workoutId);
+                when(row.getInt("exercise_id")).thenReturn(0);
+                when(row.wasNull()).thenReturn(false, true);
+                callback.process(row);
+            }
+            return null;
+        }).when(dbConnection).queryEach(startsWith("SELECT c.course_id"), any());
+
+        // прогресс пользователя: выбрана программа 1, выполнена тренировка 11
+        doAnswer(invocation -> {
+            DatabaseConnection.RowCallback callback = invocation.getArgument(1);
+            ResultSet row = mock(ResultSet.class);
+            when(row.getInt("course_id")).thenReturn(1);
+            when(row.getInt("workout_id")).thenReturn(11);
+            when(row.wasNull()).thenReturn(false);
+            callback.process(row);
+            return null;
+        }).when(dbConnection).queryEach(startsWith("SELECT up.course_id"), any(), any());
+
+        courseManager = new CourseManager(dbConnection);
+    }
+
+    @Test
+    public void testCompletionStatusLoadedWithSingleQuery() throws SQLException {
+        List<Workout> workouts = courseManager.getWorkoutsWithCompletionStatus(5L);
+        assertEquals(3, workouts.size());
+        assertFalse(workouts.get(0).isCompleted());
+        assertTrue(workouts.get(1).isCompleted());
+        assertFalse(workouts.get(2).isCompleted());
+
+        courseManager.getWorkoutsWithCompletionStatus(5L);
+        assertEquals(1, courseManager.getCourseIdForUser(5L));
+        verify(dbConnection, times(1)).queryEach(startsWith("SELECT up.course_id"), any(), any());
+    }
+
+    @Test
+    public void testMarkAndResetUpdateCachedBits() throws SQLException {
+        courseManager.getWorkoutsWithCompletionStatus(5L);
+
+        courseManager.markWorkoutAsCompleted(5L, 12);
+        assertTrue(courseManager.isWorkoutCompleted(5L, 12));
+        assertTrue(courseManager.getWorkoutsWithCompletionStatus(5L).get(2).isCompleted());
+
+        courseManager.resetCompletedWorkouts(5L);
+        assertTrue(courseManager.getWorkoutsWithCompletionStatus(5L).stream().noneMatch(Workout::isCompleted));
+        verify(dbConnection, times(1)).queryEach(startsWith("SELECT up.course_id"), any(), any());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.bot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Микробенчмарк разбора входящих команд и callback-данных. Команды: прежние две HashMap (текст кнопки -> команда
+// -> обработчик) против одной, а также против PrefixTrie - для точных ключей хеш-таблица оказалась быстрее дерева.
+// Callback: цепочка startsWith + Map.of + split("_") против CallbackRouter. Обработчики пустые - меряется только разбор.
+// Запуск после mvn test-compile: java -cp target/classes:target/test-classes org.example.bot.UpdateRouterBenchmark
+// JMH в проекте нет, поэтому замер простой: прогрев, затем несколько раундов с усреднением.
+// Строки каждый раз копируются: из JSON обновления приходит новый String без закешированного hashCode.
+public class UpdateRouterBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int ITERATIONS = 200_000;
+
+    private static final String[] COMMANDS = {
+            "/start", "/authors", "/help", "/info", "/createprofile", "/viewprofile", "/deleteprofile", "/viewcourses",
+            "/selectcourse", "/viewworkouts", "/viewexercises", "/login", "/logout", "/editprofile", "/recipes"
+    };
+    private static final String[] CALLBACKS = {
+            "edit_login", "edit_password", "edit_nickname", "edit_age", "edit_height", "edit_weight",
+            "3", "workout_12", "workout_4711", "recipe_715538", "recipe_1096010", "complete_12", "complete_4711"
+    };
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        Map<String, BiConsumer<String, StringBuilder>> commandMap = new HashMap<>();
+        Map<String, String> buttonTextToCommand = new HashMap<>();
+        PrefixTrie<BiConsumer<String, StringBuilder>> commandTrie = new PrefixTrie<>();
+        for (String command : COMMANDS) {
+            BiConsumer<String, StringBuilder> action = (chatId, builder) -> sink++;
+            commandMap.put(command, action);
+            buttonTextToCommand.put(command, command);
+            commandTrie.put(command, action);
+        }
+        CallbackRouter router = new CallbackRouter();
+        for (String edit : new String[]{"edit_login", "edit_password", "edit_nickname", "edit_age", "edit_height", "edit_weight"}) {
+            router.on(edit, chatId -> sink++);
+        }
+        router.onId("", (chatId, id) -> sink += id)
+                .onId("workout_", (chatId, id) -> sink += id)
+                .onId("recipe_", (chatId, id) -> sink += id)
+                .onId("complete_", (chatId, id) -> sink += id);
+
+        long legacyCommands = measure("команды: две HashMap", () -> {
+            for (String constant : COMMANDS) {
+                String text = new String(constant);
+                String command = buttonTextToCommand.getOrDefault(text, "/unknown");
+                commandMap.getOrDefault(command, (chatId, builder) -> { }).accept(null, null);
+            }
+        });
+        long mapCommands = measure("команды: одна HashMap", () -> {
+            for (String constant : COMMANDS) {
+                String text = new String(constant);
+                commandMap.get(text).accept(null, null);
+            }
+        });
+        measure("команды: PrefixTrie", () -> {
+            for (String constant : COMMANDS) {
+                String text = new String(constant);
+                commandTrie.get(text).accept(null, null);
+            }
+        });
+        long legacyCallbacks = measure("callback: startsWith", () -> {
+            for (String constant : CALLBACKS) {
+                String data = new String(constant);
+                legacyCallback(data);
+            }
+        });
+        long routerCallbacks = measure("callback: router", () -> {
+            for (String constant : CALLBACKS) {
+                String data = new String(constant);
+                router.route(1L, data);
+            }
+        });
+        System.out.printf("Ускорение: команды %.1fx, callback %.1fx (sink=%d)%n",
+                (double) legacyCommands / mapCommands, (double) legacyCallbacks / routerCallbacks, sink);
+    }
+
+    // Прежняя цепочка из TelegramBot.onUpdateReceived; проверка состояния SELECT_COURSE заменена разбором числа
+    private static void legacyCallback(String callbackData) {
+        if (callbackData.startsWith("edit_")) {
+            Map<String, UserState> editStateMap = Map.of(
+                    "edit_login", UserState.EDIT_PROFILE_LOGIN,
+                    "edit_password", UserState.EDIT_PROFILE_PASSWORD,
+                    "edit_nickname", UserState.EDIT_PROFILE_NICKNAME,
+                    "edit_age", UserState.EDIT_PROFILE_AGE,
+                    "edit_height", UserState.EDIT_PROFILE_HEIGHT,
+                    "edit_weight", UserState.EDIT_PROFILE_WEIGHT
+            );
+            if (editStateMap.get(callbackData) != null) {
+                sink++;
+            }
+        } else if (callbackData.startsWith("workout_")) {
+            sink += Integer.parseInt(callbackData.split("_")[1]);
+        } else if (callbackData.startsWith("recipe_")) {
+            sink += Integer.parseInt(callbackData.split("_")[1]);
+        } else if (callbackData.startsWith("complete_")) {
+            sink += Integer.parseInt(callbackData.split("_")[1]);
+        } else {
+            sink += Integer.parseInt(callbackData);
+        }
+    }
+
+    private static long measure(String name, Runnable workload) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                workload.run();
+            }
+        }
+        long total = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                workload.run();
+            }
+            total += System.nanoTime() - started;
+        }
+        long perCall = total / ((long) MEASURED_ROUNDS * ITERATIONS);
+        System.out.printf("%-22s %,6d нс на весь набор (%d мс всего)%n", name, perCall, TimeUnit.NANOSECONDS.toMillis(total));
+        return perCall;
+    }
+}